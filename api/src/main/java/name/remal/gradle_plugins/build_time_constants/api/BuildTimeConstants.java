@@ -1,6 +1,8 @@
 package name.remal.gradle_plugins.build_time_constants.api;
 
 import com.google.errorprone.annotations.CompileTimeConstant;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -106,6 +108,92 @@ public abstract class BuildTimeConstants {
         throw illegalMethodUseException();
     }
 
+    /**
+     * Invocation of this method will be replaced with an unmodifiable list of comma-separated elements of actual
+     * property value. Elements are trimmed. An empty property value is an empty list.
+     *
+     * <p>The list is created once.
+     *
+     * <p><b>Property name parameter must be a constant expression.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static List<@NotNull String> getStringListProperty(@NotNull @CompileTimeConstant String propertyName) {
+        throw illegalMethodUseException();
+    }
+
+    /**
+     * Invocation of this method will be replaced with comma-separated elements of actual property value parsed
+     * as ints. Elements are trimmed. An empty property value is an empty array.
+     *
+     * <p>The array is created once, and every invocation returns a copy of it.
+     *
+     * <p><b>Property name parameter must be a constant expression.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static int[] getIntArrayProperty(@NotNull @CompileTimeConstant String propertyName) {
+        throw illegalMethodUseException();
+    }
+
+    /**
+     * Invocation of this method will be replaced with comma-separated elements of actual property value parsed
+     * as longs. Elements are trimmed. An empty property value is an empty array.
+     *
+     * <p>The array is created once, and every invocation returns a copy of it.
+     *
+     * <p><b>Property name parameter must be a constant expression.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static long[] getLongArrayProperty(@NotNull @CompileTimeConstant String propertyName) {
+        throw illegalMethodUseException();
+    }
+
+    /**
+     * Invocation of this method will be replaced with the enum constant named by actual property value.
+     * The constant name is validated at build time.
+     *
+     * <p><b>Enum class and property name parameters must be constant expressions.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static <E extends Enum<E>> E getEnumProperty(
+        @NotNull Class<E> enumClass,
+        @NotNull @CompileTimeConstant String propertyName
+    ) {
+        throw illegalMethodUseException();
+    }
+
+    /**
+     * Invocation of this method will be replaced with actual property value, which is stored in a generated
+     * resource instead of the class file. The resource is read once, on first use.
+     *
+     * <p>Use this method for large values, like embedded JSON documents or schemas.
+     * {@link #getStringProperty(String)} stores values in the constant pool, which is limited to 65535 bytes
+     * per string.
+     *
+     * <p><b>Property name parameter must be a constant expression.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static String getLargeStringProperty(@NotNull @CompileTimeConstant String propertyName) {
+        throw illegalMethodUseException();
+    }
+
+    /**
+     * Invocation of this method will be replaced with a read-only buffer of UTF-8 bytes of actual property value.
+     * The value is stored in a generated resource instead of the class file. The resource is read once,
+     * on first use, and every invocation returns a new buffer over the same bytes.
+     *
+     * <p><b>Property name parameter must be a constant expression.</b>
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static ByteBuffer getBytesProperty(@NotNull @CompileTimeConstant String propertyName) {
+        throw illegalMethodUseException();
+    }
+
 
     /**
      * Invocation of this method will be replaced with actual properties values.
@@ -1,8 +1,14 @@
 package name.remal.gradle_plugins.build_time_constants;
 
 import static java.lang.String.join;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.Files.readAllBytes;
+import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.File;
+import java.util.zip.ZipFile;
 import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
 import name.remal.gradle_plugins.toolkit.testkit.functional.GradleProject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +16,9 @@ import org.junit.jupiter.api.Test;
 @RequiredArgsConstructor
 class BuildTimeConstantsPluginFunctionalTest {
 
+    private static final String BUILD_TIME_CONSTANTS_INTERNAL_NAME =
+        "name/remal/gradle_plugins/build_time_constants/api/BuildTimeConstants";
+
     private final GradleProject project;
 
 
@@ -56,4 +65,120 @@ class BuildTimeConstantsPluginFunctionalTest {
         project.assertBuildSuccessfully("compileJava");
     }
 
+    @Test
+    void processInSeparateTasks() {
+        project.getBuildFile().line("buildTimeConstants.processInSeparateTasks = true");
+        project.getBuildFile().line("buildTimeConstants.property('prop', 'value')");
+
+        project.writeTextFile("src/main/java/pkg/TestClass.java", join(
+            "\n",
+            "package pkg;",
+            "",
+            "import static name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants.*;",
+            "",
+            "public class TestClass {",
+            "    public static final String PROPERTY = getStringProperty(\"prop\");",
+            "}"
+        ));
+
+        project.assertBuildSuccessfully("jar");
+
+        var classFileContent = readFileContent("build/classes/java/main/pkg/TestClass.class");
+        assertThat(classFileContent)
+            .contains("value")
+            .doesNotContain(BUILD_TIME_CONSTANTS_INTERNAL_NAME);
+
+        var jarFiles = new File(project.getProjectDir(), "build/libs").listFiles();
+        assertThat(jarFiles).hasSize(1);
+        assertThat(readArchiveEntryContent(jarFiles[0], "pkg/TestClass.class"))
+            .isEqualTo(classFileContent);
+    }
+
+    @Test
+    void unreferencedPropertiesAreNotResolvedWithConfigurationCache() {
+        project.getBuildFile().line(
+            "abstract class FailingValueSource implements ValueSource<String, ValueSourceParameters.None> {"
+        );
+        project.getBuildFile().line("    String obtain() {");
+        project.getBuildFile().line("        throw new GradleException('Not referenced property is resolved')");
+        project.getBuildFile().line("    }");
+        project.getBuildFile().line("}");
+        project.getBuildFile().line("buildTimeConstants.processInSeparateTasks = true");
+        project.getBuildFile().line("buildTimeConstants.resolvePropertiesLazily = true");
+        project.getBuildFile().line("buildTimeConstants.property('prop', 'value')");
+        project.getBuildFile().line(
+            "buildTimeConstants.property('notReferenced', providers.of(FailingValueSource) { })"
+        );
+
+        project.writeTextFile("src/main/java/pkg/TestClass.java", join(
+            "\n",
+            "package pkg;",
+            "",
+            "import static name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants.*;",
+            "",
+            "public class TestClass {",
+            "    public static final String PROPERTY = getStringProperty(\"prop\");",
+            "}"
+        ));
+
+        // the first build stores the configuration cache entry, the second one reuses it
+        project.assertBuildSuccessfully("jar", "--configuration-cache");
+        project.assertBuildSuccessfully("jar", "--configuration-cache");
+
+        assertThat(readFileContent("build/classes/java/main/pkg/TestClass.class"))
+            .contains("value")
+            .doesNotContain(BUILD_TIME_CONSTANTS_INTERNAL_NAME);
+    }
+
+    @Test
+    void onlyClassesReadingChangedPropertiesAreProcessedAgain() {
+        project.getBuildFile().line("buildTimeConstants.processInSeparateTasks = true");
+        project.getBuildFile().line("buildTimeConstants.property('prop1', 'value1')");
+        project.getBuildFile().line("buildTimeConstants.property('prop2', project.findProperty('prop2') ?: 'value2')");
+
+        for (var index = 1; index <= 2; ++index) {
+            project.writeTextFile("src/main/java/pkg/TestClass" + index + ".java", join(
+                "\n",
+                "package pkg;",
+                "",
+                "import static name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants.*;",
+                "",
+                "public class TestClass" + index + " {",
+                "    public static final String PROPERTY = getStringProperty(\"prop" + index + "\");",
+                "}"
+            ));
+        }
+
+        project.assertBuildSuccessfully("classes");
+        assertThat(readFileContent("build/reports/build-time-constants/inlineBuildTimeConstantsJava.json"))
+            .contains("\"filesVisited\": 2,");
+
+        project.assertBuildSuccessfully("classes", "-Pprop2=changed");
+        assertThat(readFileContent("build/reports/build-time-constants/inlineBuildTimeConstantsJava.json"))
+            .contains("\"filesVisited\": 1,");
+        assertThat(readFileContent("build/classes/java/main/pkg/TestClass1.class"))
+            .contains("value1");
+        assertThat(readFileContent("build/classes/java/main/pkg/TestClass2.class"))
+            .contains("changed")
+            .doesNotContain("value2");
+    }
+
+
+    @SneakyThrows
+    private String readFileContent(String relativePath) {
+        var file = new File(project.getProjectDir(), relativePath);
+        return new String(readAllBytes(file.toPath()), ISO_8859_1);
+    }
+
+    @SneakyThrows
+    private static String readArchiveEntryContent(File archiveFile, String entryName) {
+        try (var zipFile = new ZipFile(archiveFile)) {
+            var entry = zipFile.getEntry(entryName);
+            assertThat(entry).as(entryName).isNotNull();
+            try (var in = zipFile.getInputStream(entry)) {
+                return new String(in.readAllBytes(), ISO_8859_1);
+            }
+        }
+    }
+
 }
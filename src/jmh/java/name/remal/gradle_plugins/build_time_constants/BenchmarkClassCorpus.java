@@ -0,0 +1,173 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.IADD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V11;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Generates class files for {@link ClassFileProcessorBenchmark}.
+ */
+enum BenchmarkClassCorpus {
+
+    /**
+     * Small classes, each with a single property read.
+     */
+    SMALL {
+        @Override
+        byte[] generateClass(int index, int propertiesCount) {
+            return generate(index, 0, 1, 0, propertiesCount);
+        }
+    },
+
+    /**
+     * Huge classes, like generated parsers: hundreds of methods, and only a few property reads.
+     */
+    HUGE {
+        @Override
+        byte[] generateClass(int index, int propertiesCount) {
+            return generate(index, 500, 5, 0, propertiesCount);
+        }
+    },
+
+    /**
+     * Classes that read property maps by name patterns.
+     */
+    MAP_HEAVY {
+        @Override
+        byte[] generateClass(int index, int propertiesCount) {
+            return generate(index, 0, 0, 10, propertiesCount);
+        }
+    },
+
+    /**
+     * Classes that don't invoke {@code BuildTimeConstants} methods, mixed with small classes that do.
+     */
+    MIXED {
+        @Override
+        byte[] generateClass(int index, int propertiesCount) {
+            if (index % 2 == 0) {
+                return generate(index, 20, 0, 0, propertiesCount);
+            } else {
+                return generate(index, 20, 1, 0, propertiesCount);
+            }
+        }
+    },
+
+    ;
+
+    static final int CLASSES_COUNT = 100;
+
+    private static final String BUILD_TIME_CONSTANTS_INTERNAL_NAME =
+        "name/remal/gradle_plugins/build_time_constants/api/BuildTimeConstants";
+
+    abstract byte[] generateClass(int index, int propertiesCount);
+
+    public List<byte[]> generateClasses(int propertiesCount) {
+        List<byte[]> result = new ArrayList<>(CLASSES_COUNT);
+        for (int index = 0; index < CLASSES_COUNT; ++index) {
+            result.add(generateClass(index, propertiesCount));
+        }
+        return result;
+    }
+
+    public static Map<String, String> generateProperties(int propertiesCount) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int index = 0; index < propertiesCount; ++index) {
+            result.put(getPropertyName(index), "value" + index);
+        }
+        return result;
+    }
+
+    private static String getPropertyName(int index) {
+        return "group" + (index % 10) + ".property" + index;
+    }
+
+
+    private static byte[] generate(
+        int index,
+        int plainMethodsCount,
+        int propertyReadsCount,
+        int propertyMapReadsCount,
+        int propertiesCount
+    ) {
+        var className = "benchmark/Generated" + index;
+        var classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        classWriter.visit(V11, ACC_PUBLIC, className, null, "java/lang/Object", null);
+
+        var constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        for (int methodIndex = 0; methodIndex < plainMethodsCount; ++methodIndex) {
+            var method = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "plain" + methodIndex, "()I", null, null);
+            method.visitCode();
+            method.visitLdcInsn(methodIndex * 31 + index);
+            for (int n = 0; n < 20; ++n) {
+                method.visitLdcInsn(n * 17 + methodIndex);
+                method.visitInsn(IADD);
+            }
+            method.visitInsn(IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        if (propertyReadsCount > 0 || propertyMapReadsCount > 0) {
+            var method = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "readProperties", "()V", null, null);
+            method.visitCode();
+            for (int n = 0; n < propertyReadsCount; ++n) {
+                var propertyIndex = (index + n) % propertiesCount;
+                visitBuildTimeConstantsInvocation(method, "getStringProperty", "Ljava/lang/String;",
+                    getPropertyName(propertyIndex)
+                );
+            }
+            for (int n = 0; n < propertyMapReadsCount; ++n) {
+                visitBuildTimeConstantsInvocation(method, "getStringProperties", "Ljava/util/Map;",
+                    "group" + (n % 10) + ".*"
+                );
+            }
+            method.visitInsn(RETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private static void visitBuildTimeConstantsInvocation(
+        MethodVisitor method,
+        String methodName,
+        String returnDescriptor,
+        String parameter
+    ) {
+        method.visitLdcInsn(parameter);
+        method.visitMethodInsn(
+            INVOKESTATIC,
+            BUILD_TIME_CONSTANTS_INTERNAL_NAME,
+            methodName,
+            "(Ljava/lang/String;)" + returnDescriptor,
+            false
+        );
+        method.visitInsn(POP);
+    }
+
+}
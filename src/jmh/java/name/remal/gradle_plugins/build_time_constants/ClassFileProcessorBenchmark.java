@@ -0,0 +1,106 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures throughput of {@link ClassFileProcessor#process(byte[])}, in classes per second.
+ *
+ * <p>Run with {@code -prof gc} (as {@code jmh} Gradle task does) to get bytes allocated per class
+ * ({@code gc.alloc.rate.norm}).
+ *
+ * <p>Processing options are fixed to their defaults, so the default run has one trial per corpus and properties
+ * count. Use JMH {@code -p} option to measure other options, for example:
+ * {@code ./gradlew jmh --args='-p foldConstantConditions=false,true'}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassFileProcessorBenchmark {
+
+    @Param({"SMALL", "HUGE", "MAP_HEAVY", "MIXED"})
+    public String corpus;
+
+    @Param({"10", "1000"})
+    public int propertiesCount;
+
+    @Param("ORDERED")
+    public PropertyMapImplementation propertyMapImplementation;
+
+    @Param("OWNING_CLASS")
+    public PropertyMapStorage propertyMapStorage;
+
+    @Param("false")
+    public boolean foldConstantConditions;
+
+    @Param("false")
+    public boolean foldPureMethodCalls;
+
+    private List<byte[]> classes;
+
+    private Map<String, String> properties;
+
+    private ClassHierarchyResolver classHierarchyResolver;
+
+    private ClassFileProcessingOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        classes = BenchmarkClassCorpus.valueOf(corpus).generateClasses(propertiesCount);
+        properties = BenchmarkClassCorpus.generateProperties(propertiesCount);
+        classHierarchyResolver = ClassHierarchyResolver.forClassLoader(ClassLoader.getPlatformClassLoader());
+        options = new ClassFileProcessingOptions(
+            propertyMapImplementation,
+            propertyMapStorage,
+            foldConstantConditions,
+            foldPureMethodCalls
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        classHierarchyResolver.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkClassCorpus.CLASSES_COUNT)
+    public void process(Blackhole blackhole) {
+        // properties are compiled and metrics are created once per task action
+        var compiledProperties = new CompiledProperties(properties);
+        var metrics = new ProcessingMetrics();
+        var propertyResources = new PropertyResources();
+        for (var bytecode : classes) {
+            var processor = new ClassFileProcessor(
+                compiledProperties,
+                classHierarchyResolver,
+                metrics,
+                options,
+                propertyResources,
+                null,
+                null
+            );
+            blackhole.consume(processor.process(bytecode));
+        }
+    }
+
+}
@@ -0,0 +1,628 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.lang.Integer.toUnsignedLong;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.size;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static java.util.zip.ZipEntry.DEFLATED;
+import static java.util.zip.ZipEntry.STORED;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Processes class files inside a JAR or ZIP archive.
+ *
+ * <p>The archive is rewritten entry by entry, in the original order. Entries that are not changed by
+ * {@link ClassFileProcessor} are copied with their compressed bytes, local headers, and central directory records
+ * untouched. Only changed class files are compressed again.
+ *
+ * <p>ZIP64 archives are not supported by the raw copying, so all their entries are recompressed. The same happens if
+ * the rewritten archive would need ZIP64 extensions, because of too many added entries, for example.
+ *
+ * <p>{@link PropertyResources} of processed class files are added to the end of the archive.
+ */
+@RequiredArgsConstructor
+class ArchiveProcessor {
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private static final int ENCRYPTED_FLAG = 1;
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+
+    private static final int VERSION_NEEDED_TO_DEFLATE = 20;
+
+    /**
+     * Time of added entries: 1980-02-01 00:00, the same as Gradle uses for reproducible archives.
+     */
+    private static final LocalDateTime ADDED_ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+    private static final int ADDED_ENTRY_DOS_DATE = ((ADDED_ENTRY_TIME.getYear() - 1980) << 9)
+        | (ADDED_ENTRY_TIME.getMonthValue() << 5)
+        | ADDED_ENTRY_TIME.getDayOfMonth();
+
+
+    private final CompiledProperties properties;
+    private final ClassHierarchyResolver classHierarchyResolver;
+    private final ProcessingMetrics metrics;
+    private final ClassFileProcessingOptions options;
+
+    /**
+     * Processes class files of the source archive and writes the result to the target path.
+     * The source and the target paths can be the same.
+     *
+     * @return {@code true} if any of class files was changed, {@code false} otherwise
+     */
+    @SneakyThrows
+    public boolean process(Path sourcePath, Path targetPath) {
+        var targetDirPath = targetPath.toAbsolutePath().getParent();
+        if (targetDirPath != null) {
+            createDirectories(targetDirPath);
+        }
+
+        var tempPath = createTempFile(targetDirPath, targetPath.getFileName() + "-", ".tmp");
+        try {
+            Boolean changed = null;
+            try (var source = FileChannel.open(sourcePath, READ)) {
+                var centralDirectory = readCentralDirectory(source);
+                if (centralDirectory != null) {
+                    try (var target = FileChannel.open(tempPath, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                        changed = rewrite(source, centralDirectory, target, new PropertyResources());
+                    }
+                }
+            }
+            if (changed == null) {
+                changed = recompress(sourcePath, tempPath, new PropertyResources());
+            }
+
+            metrics.bytesWritten(size(tempPath));
+            move(tempPath, targetPath, REPLACE_EXISTING);
+            return changed;
+
+        } finally {
+            deleteIfExists(tempPath);
+        }
+    }
+
+    private byte @Nullable [] processClassFile(
+        String entryName,
+        byte[] bytecode,
+        PropertyResources propertyResources
+    ) {
+        if (!entryName.endsWith(".class")) {
+            return null;
+        }
+
+        metrics.fileVisited();
+        try {
+            var processor = new ClassFileProcessor(
+                properties,
+                classHierarchyResolver,
+                metrics,
+                options,
+                propertyResources,
+                null,
+                null
+            );
+            return processor.process(bytecode);
+        } catch (BuildTimeConstantsException e) {
+            throw new BuildTimeConstantsException("Error processing archive entry " + entryName, e);
+        }
+    }
+
+
+    //#region Raw rewriting
+
+    /**
+     * Returns {@code null} if the rewritten archive would need ZIP64 extensions.
+     */
+    @Nullable
+    private Boolean rewrite(
+        FileChannel source,
+        CentralDirectory centralDirectory,
+        FileChannel target,
+        PropertyResources propertyResources
+    ) throws IOException {
+        var entries = centralDirectory.entries;
+
+        // data of an entry lasts until the next local header, or until the central directory
+        List<CentralDirectoryEntry> entriesByOffset = new ArrayList<>(entries);
+        entriesByOffset.sort(comparingLong(CentralDirectoryEntry::getLocalHeaderOffset));
+        for (int i = 0; i < entriesByOffset.size(); ++i) {
+            var entry = entriesByOffset.get(i);
+            entry.rawEnd = i + 1 < entriesByOffset.size()
+                ? entriesByOffset.get(i + 1).getLocalHeaderOffset()
+                : centralDirectory.offset;
+        }
+
+        // bytes before the first local header, like a self-extracting stub, are copied as is
+        var firstLocalHeaderOffset = entriesByOffset.isEmpty()
+            ? centralDirectory.offset
+            : entriesByOffset.get(0).getLocalHeaderOffset();
+        transferFully(source, 0, firstLocalHeaderOffset, target);
+
+        boolean changed = false;
+        var newCentralDirectory = new ByteArrayOutputStream();
+        for (var entry : entries) {
+            var newLocalHeaderOffset = target.position();
+
+            var processedBytecode = entry.canBeProcessed()
+                ? processClassFile(entry.getName(), readEntryData(source, entry), propertyResources)
+                : null;
+            if (processedBytecode == null) {
+                transferFully(source, entry.getLocalHeaderOffset(), entry.rawEnd, target);
+                var record = entry.record.clone();
+                putUnsignedInt(record, 42, newLocalHeaderOffset);
+                newCentralDirectory.write(record);
+                continue;
+            }
+
+            changed = true;
+            var compressed = deflate(processedBytecode);
+            var crc = new CRC32();
+            crc.update(processedBytecode);
+
+            var flags = entry.getFlags() & ~DATA_DESCRIPTOR_FLAG;
+            var nameBytes = entry.getNameBytes();
+            var localHeader = ByteBuffer.allocate(LOCAL_FILE_HEADER_SIZE + nameBytes.length).order(LITTLE_ENDIAN);
+            localHeader.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+            localHeader.putShort((short) VERSION_NEEDED_TO_DEFLATE);
+            localHeader.putShort((short) flags);
+            localHeader.putShort((short) DEFLATED);
+            localHeader.putShort((short) entry.getUnsignedShort(12));
+            localHeader.putShort((short) entry.getUnsignedShort(14));
+            localHeader.putInt((int) crc.getValue());
+            localHeader.putInt(compressed.length);
+            localHeader.putInt(processedBytecode.length);
+            localHeader.putShort((short) nameBytes.length);
+            localHeader.putShort((short) 0);
+            localHeader.put(nameBytes);
+            localHeader.flip();
+            writeFully(target, localHeader);
+            writeFully(target, ByteBuffer.wrap(compressed));
+
+            var commentBytes = entry.getCommentBytes();
+            var record = ByteBuffer.allocate(CENTRAL_DIRECTORY_HEADER_SIZE + nameBytes.length + commentBytes.length)
+                .order(LITTLE_ENDIAN);
+            record.put(entry.record, 0, CENTRAL_DIRECTORY_HEADER_SIZE);
+            record.putShort(6, (short) max(VERSION_NEEDED_TO_DEFLATE, entry.getUnsignedShort(6)));
+            record.putShort(8, (short) flags);
+            record.putShort(10, (short) DEFLATED);
+            record.putInt(16, (int) crc.getValue());
+            record.putInt(20, compressed.length);
+            record.putInt(24, processedBytecode.length);
+            record.putShort(30, (short) 0);
+            record.putInt(42, (int) newLocalHeaderOffset);
+            record.put(nameBytes);
+            record.put(commentBytes);
+            newCentralDirectory.write(record.array());
+        }
+
+        var entryNames = entries.stream()
+            .map(CentralDirectoryEntry::getName)
+            .collect(toSet());
+        var addedResources = propertyResources.getResources().entrySet().stream()
+            .filter(resource -> entryNames.add(resource.getKey()))
+            .collect(toList());
+        var entriesCount = entries.size() + addedResources.size();
+        if (entriesCount >= 0xFFFF) {
+            return null;
+        }
+
+        for (var resource : addedResources) {
+            addEntry(target, resource.getKey(), resource.getValue(), newCentralDirectory);
+        }
+
+        var newCentralDirectoryOffset = target.position();
+        if (newCentralDirectoryOffset + newCentralDirectory.size() >= 0xFFFFFFFFL) {
+            return null;
+        }
+        writeFully(target, ByteBuffer.wrap(newCentralDirectory.toByteArray()));
+
+        var endRecord = centralDirectory.endRecord.clone();
+        putUnsignedShort(endRecord, 8, entriesCount);
+        putUnsignedShort(endRecord, 10, entriesCount);
+        putUnsignedInt(endRecord, 12, newCentralDirectory.size());
+        putUnsignedInt(endRecord, 16, newCentralDirectoryOffset);
+        writeFully(target, ByteBuffer.wrap(endRecord));
+
+        return changed;
+    }
+
+    private static void addEntry(
+        FileChannel target,
+        String name,
+        byte[] content,
+        ByteArrayOutputStream newCentralDirectory
+    ) throws IOException {
+        var localHeaderOffset = target.position();
+        var compressed = deflate(content);
+        var crc = new CRC32();
+        crc.update(content);
+
+        var nameBytes = name.getBytes(UTF_8);
+        var localHeader = ByteBuffer.allocate(LOCAL_FILE_HEADER_SIZE + nameBytes.length).order(LITTLE_ENDIAN);
+        localHeader.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+        localHeader.putShort((short) VERSION_NEEDED_TO_DEFLATE);
+        localHeader.putShort((short) 0);
+        localHeader.putShort((short) DEFLATED);
+        localHeader.putShort((short) 0);
+        localHeader.putShort((short) ADDED_ENTRY_DOS_DATE);
+        localHeader.putInt((int) crc.getValue());
+        localHeader.putInt(compressed.length);
+        localHeader.putInt(content.length);
+        localHeader.putShort((short) nameBytes.length);
+        localHeader.putShort((short) 0);
+        localHeader.put(nameBytes);
+        localHeader.flip();
+        writeFully(target, localHeader);
+        writeFully(target, ByteBuffer.wrap(compressed));
+
+        var record = ByteBuffer.allocate(CENTRAL_DIRECTORY_HEADER_SIZE + nameBytes.length).order(LITTLE_ENDIAN);
+        record.putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+        record.putShort((short) VERSION_NEEDED_TO_DEFLATE);
+        record.putShort((short) VERSION_NEEDED_TO_DEFLATE);
+        record.putShort((short) 0);
+        record.putShort((short) DEFLATED);
+        record.putShort((short) 0);
+        record.putShort((short) ADDED_ENTRY_DOS_DATE);
+        record.putInt((int) crc.getValue());
+        record.putInt(compressed.length);
+        record.putInt(content.length);
+        record.putShort((short) nameBytes.length);
+        record.putShort((short) 0);
+        record.putShort((short) 0);
+        record.putShort((short) 0);
+        record.putShort((short) 0);
+        record.putInt(0);
+        record.putInt((int) localHeaderOffset);
+        record.put(nameBytes);
+        newCentralDirectory.write(record.array());
+    }
+
+    /**
+     * Returns {@code null} if the archive can't be rewritten with raw copying (ZIP64, or unexpected structure).
+     */
+    @Nullable
+    private static CentralDirectory readCentralDirectory(FileChannel source) throws IOException {
+        var size = source.size();
+        var tailSize = (int) min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_LENGTH);
+        var tail = readFully(source, size - tailSize, tailSize);
+
+        int endRecordPos = -1;
+        for (int pos = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; pos >= 0; --pos) {
+            if (getInt(tail, pos) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                && pos + END_OF_CENTRAL_DIRECTORY_SIZE + getUnsignedShort(tail, pos + 20) == tailSize
+            ) {
+                endRecordPos = pos;
+                break;
+            }
+        }
+        if (endRecordPos < 0) {
+            throw new ZipException("End of central directory record not found");
+        }
+
+        var zip64LocatorPos = endRecordPos - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+        if (zip64LocatorPos >= 0 && getInt(tail, zip64LocatorPos) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+            return null;
+        }
+
+        var entriesCount = getUnsignedShort(tail, endRecordPos + 10);
+        var centralDirectorySize = toUnsignedLong(getInt(tail, endRecordPos + 12));
+        var centralDirectoryOffset = toUnsignedLong(getInt(tail, endRecordPos + 16));
+        if (entriesCount == 0xFFFF
+            || centralDirectoryOffset + centralDirectorySize > size - tailSize + endRecordPos
+        ) {
+            return null;
+        }
+
+        var endRecord = new byte[tailSize - endRecordPos];
+        System.arraycopy(tail, endRecordPos, endRecord, 0, endRecord.length);
+
+        var centralDirectoryBytes = readFully(source, centralDirectoryOffset, (int) centralDirectorySize);
+        List<CentralDirectoryEntry> entries = new ArrayList<>(entriesCount);
+        int pos = 0;
+        for (int i = 0; i < entriesCount; ++i) {
+            if (pos + CENTRAL_DIRECTORY_HEADER_SIZE > centralDirectoryBytes.length
+                || getInt(centralDirectoryBytes, pos) != CENTRAL_DIRECTORY_HEADER_SIGNATURE
+            ) {
+                return null;
+            }
+
+            var recordSize = CENTRAL_DIRECTORY_HEADER_SIZE
+                + getUnsignedShort(centralDirectoryBytes, pos + 28)
+                + getUnsignedShort(centralDirectoryBytes, pos + 30)
+                + getUnsignedShort(centralDirectoryBytes, pos + 32);
+            if (pos + recordSize > centralDirectoryBytes.length) {
+                return null;
+            }
+
+            var record = new byte[recordSize];
+            System.arraycopy(centralDirectoryBytes, pos, record, 0, recordSize);
+            var entry = new CentralDirectoryEntry(record);
+            if (entry.getLocalHeaderOffset() == 0xFFFFFFFFL
+                || entry.getCompressedSize() == 0xFFFFFFFFL
+                || entry.getUncompressedSize() == 0xFFFFFFFFL
+            ) {
+                return null;
+            }
+            entries.add(entry);
+
+            pos += recordSize;
+        }
+
+        return new CentralDirectory(entries, centralDirectoryOffset, endRecord);
+    }
+
+    private static byte[] readEntryData(FileChannel source, CentralDirectoryEntry entry) throws IOException {
+        var localHeader = readFully(source, entry.getLocalHeaderOffset(), LOCAL_FILE_HEADER_SIZE);
+        if (getInt(localHeader, 0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local file header: " + entry.getName());
+        }
+
+        var dataOffset = entry.getLocalHeaderOffset()
+            + LOCAL_FILE_HEADER_SIZE
+            + getUnsignedShort(localHeader, 26)
+            + getUnsignedShort(localHeader, 28);
+        var data = readFully(source, dataOffset, (int) entry.getCompressedSize());
+        if (entry.getMethod() == STORED) {
+            return data;
+        }
+
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            var result = new byte[(int) entry.getUncompressedSize()];
+            int length = 0;
+            while (length < result.length && !inflater.finished()) {
+                var inflated = inflater.inflate(result, length, result.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != result.length) {
+                throw new ZipException("Invalid compressed data: " + entry.getName());
+            }
+            return result;
+
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data: " + entry.getName() + ": " + e.getMessage());
+
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        var deflater = new Deflater(DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            var out = new ByteArrayOutputStream(bytes.length);
+            var buffer = new byte[8192];
+            while (!deflater.finished()) {
+                var length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] readFully(FileChannel source, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void transferFully(FileChannel source, long start, long end, FileChannel target)
+        throws IOException {
+        var position = start;
+        while (position < end) {
+            var transferred = source.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new EOFException();
+            }
+            position += transferred;
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, 4).order(LITTLE_ENDIAN).getInt();
+    }
+
+    private static int getUnsignedShort(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, 2).order(LITTLE_ENDIAN).getShort() & 0xFFFF;
+    }
+
+    private static void putUnsignedShort(byte[] bytes, int offset, int value) {
+        ByteBuffer.wrap(bytes, offset, 2).order(LITTLE_ENDIAN).putShort((short) value);
+    }
+
+    private static void putUnsignedInt(byte[] bytes, int offset, long value) {
+        ByteBuffer.wrap(bytes, offset, 4).order(LITTLE_ENDIAN).putInt((int) value);
+    }
+
+    @RequiredArgsConstructor
+    private static class CentralDirectory {
+        private final List<CentralDirectoryEntry> entries;
+        private final long offset;
+        private final byte[] endRecord;
+    }
+
+    @RequiredArgsConstructor
+    private static class CentralDirectoryEntry {
+
+        private final byte[] record;
+
+        private long rawEnd;
+
+        public int getUnsignedShort(int offset) {
+            return ArchiveProcessor.getUnsignedShort(record, offset);
+        }
+
+        public int getFlags() {
+            return getUnsignedShort(8);
+        }
+
+        public int getMethod() {
+            return getUnsignedShort(10);
+        }
+
+        public long getCompressedSize() {
+            return toUnsignedLong(getInt(record, 20));
+        }
+
+        public long getUncompressedSize() {
+            return toUnsignedLong(getInt(record, 24));
+        }
+
+        public long getLocalHeaderOffset() {
+            return toUnsignedLong(getInt(record, 42));
+        }
+
+        public byte[] getNameBytes() {
+            var nameBytes = new byte[getUnsignedShort(28)];
+            System.arraycopy(record, CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes, 0, nameBytes.length);
+            return nameBytes;
+        }
+
+        public String getName() {
+            // class file names are ASCII, so the charset doesn't matter for them
+            return new String(getNameBytes(), UTF_8);
+        }
+
+        public byte[] getCommentBytes() {
+            var commentOffset = CENTRAL_DIRECTORY_HEADER_SIZE + getUnsignedShort(28) + getUnsignedShort(30);
+            var commentBytes = new byte[getUnsignedShort(32)];
+            System.arraycopy(record, commentOffset, commentBytes, 0, commentBytes.length);
+            return commentBytes;
+        }
+
+        public boolean canBeProcessed() {
+            return getName().endsWith(".class")
+                && (getFlags() & ENCRYPTED_FLAG) == 0
+                && (getMethod() == STORED || getMethod() == DEFLATED);
+        }
+
+    }
+
+    //#endregion
+
+
+    //#region Recompression
+
+    private boolean recompress(
+        Path sourcePath,
+        Path targetPath,
+        PropertyResources propertyResources
+    ) throws IOException {
+        boolean changed = false;
+        Set<String> entryNames = new HashSet<>();
+        try (
+            var zipFile = new ZipFile(sourcePath.toFile());
+            var out = new ZipOutputStream(newOutputStream(targetPath))
+        ) {
+            var entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                entryNames.add(entry.getName());
+                byte[] bytes;
+                try (var in = zipFile.getInputStream(entry)) {
+                    bytes = in.readAllBytes();
+                }
+
+                var processedBytecode = entry.isDirectory()
+                    ? null
+                    : processClassFile(entry.getName(), bytes, propertyResources);
+                var newEntry = new ZipEntry(entry.getName());
+                newEntry.setTime(entry.getTime());
+                newEntry.setComment(entry.getComment());
+                newEntry.setExtra(entry.getExtra());
+                if (processedBytecode != null) {
+                    bytes = processedBytecode;
+                    changed = true;
+                }
+
+                out.putNextEntry(newEntry);
+                out.write(bytes);
+                out.closeEntry();
+            }
+
+            for (var resource : propertyResources.getResources().entrySet()) {
+                if (entryNames.add(resource.getKey())) {
+                    var newEntry = new ZipEntry(resource.getKey());
+                    newEntry.setTimeLocal(ADDED_ENTRY_TIME);
+                    out.putNextEntry(newEntry);
+                    out.write(resource.getValue());
+                    out.closeEntry();
+                }
+            }
+        }
+        return changed;
+    }
+
+    //#endregion
+
+}
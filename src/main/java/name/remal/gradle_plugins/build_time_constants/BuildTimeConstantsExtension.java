@@ -8,6 +8,7 @@ import org.gradle.api.Action;
 import org.gradle.api.Task;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
 import org.jspecify.annotations.Nullable;
 
 public abstract class BuildTimeConstantsExtension {
@@ -30,6 +31,78 @@ public abstract class BuildTimeConstantsExtension {
     }
 
 
+    /**
+     * The max number of threads used to process class files of a single compilation task.
+     *
+     * <p>Threads are taken from a pool shared by all tasks of the build, which has the max number of Gradle workers
+     * threads. So, tasks executed in parallel don't use more threads than Gradle workers in total.
+     *
+     * <p>By default, the max number of Gradle workers is used.
+     */
+    public abstract Property<Integer> getParallelism();
+
+
+    /**
+     * If {@code true}, class files of Java, Groovy, and Scala source sets are processed by separate
+     * {@link InlineBuildTimeConstants} tasks instead of compilation tasks.
+     * So, changing property values doesn't cause recompilation, and processing results can be cached.
+     *
+     * <p>{@code false} by default.
+     */
+    public abstract Property<Boolean> getProcessInSeparateTasks();
+
+
+    /**
+     * Defines how maps returned by {@code BuildTimeConstants.get*Properties()} methods are created.
+     *
+     * <p>{@link PropertyMapImplementation#ORDERED} by default.
+     */
+    public abstract Property<PropertyMapImplementation> getPropertyMapImplementation();
+
+    /**
+     * Defines where maps returned by {@code BuildTimeConstants.get*Properties()} methods are stored.
+     * Lists and arrays returned by {@code BuildTimeConstants.get*ListProperty()} and
+     * {@code BuildTimeConstants.get*ArrayProperty()} methods are stored the same way.
+     *
+     * <p>{@link PropertyMapStorage#OWNING_CLASS} by default.
+     */
+    public abstract Property<PropertyMapStorage> getPropertyMapStorage();
+
+    /**
+     * If {@code true}, conditions that become constant after substitution (for example,
+     * {@code if (BuildTimeConstants.getBooleanProperty("debug"))}) are folded, and code that becomes unreachable
+     * is removed.
+     *
+     * <p>{@code false} by default.
+     */
+    public abstract Property<Boolean> getFoldConstantConditions();
+
+    /**
+     * If {@code true}, invocations of side-effect-free JDK methods with constant parameters (for example,
+     * {@code BuildTimeConstants.getStringProperty("env").equals("prod")}) are replaced with their results.
+     *
+     * <p>{@code false} by default.
+     */
+    public abstract Property<Boolean> getFoldPureMethodCalls();
+
+    /**
+     * If {@code true}, class files are scanned for names and name patterns of properties they reference first,
+     * and only the referenced {@link #getProperties()} values are resolved and used as task inputs.
+     * So, providers of properties that are not referenced are not invoked.
+     *
+     * <p>Only {@link InlineBuildTimeConstants} and {@link InlineBuildTimeConstantsInArchive} tasks resolve
+     * properties lazily, as their class files exist before the tasks are executed. Class files processed by
+     * compilation tasks (see {@link #getProcessInSeparateTasks()}) are not compiled yet when inputs are resolved,
+     * so all properties are resolved for them.
+     *
+     * <p>Values added via {@code getProperties().put(name, provider)} are resolved by Gradle together with the map.
+     * Use {@link #property(String, Object)} to add values that have to be resolved lazily.
+     *
+     * <p>{@code false} by default.
+     */
+    public abstract Property<Boolean> getResolvePropertiesLazily();
+
+
     public abstract ListProperty<Object> getCompilationDependencies();
 
     /**
@@ -1,24 +1,53 @@
 package name.remal.gradle_plugins.build_time_constants;
 
 import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.ORDERED;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.OWNING_CLASS;
 import static name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants.getStringProperty;
 import static name.remal.gradle_plugins.toolkit.ObjectUtils.doNotInline;
 import static name.remal.gradle_plugins.toolkit.ObjectUtils.unwrapProviders;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
+import lombok.SneakyThrows;
 import name.remal.gradle_plugins.toolkit.AbstractSettingsAwarePlugin;
 import name.remal.gradle_plugins.toolkit.JvmLanguageCompilationUtils;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.SourceSetOutput;
+import org.gradle.api.tasks.compile.AbstractCompile;
+import org.jspecify.annotations.Nullable;
 
 public abstract class BuildTimeConstantsPlugin extends AbstractSettingsAwarePlugin {
 
     public static final String BUILD_TIME_CONSTANTS_EXTENSION_NAME = doNotInline("buildTimeConstants");
 
+    /**
+     * Source directory sets of these plugins are compiled by {@link AbstractCompile} tasks,
+     * like {@link SourceSet#getJava()}.
+     */
+    private static final Map<String, String> LANGUAGE_PLUGIN_SOURCE_DIRECTORY_SETS = ImmutableMap.of(
+        "groovy-base", "groovy",
+        "scala-base", "scala"
+    );
+
     @Override
     protected void applyToProject(Project project) {
         project.getExtensions().create(BUILD_TIME_CONSTANTS_EXTENSION_NAME, BuildTimeConstantsExtension.class);
@@ -46,39 +75,369 @@ public abstract class BuildTimeConstantsPlugin extends AbstractSettingsAwarePlug
 
 
         var extension = project.getExtensions().getByType(BuildTimeConstantsExtension.class);
+        extension.getParallelism().convention(project.getGradle().getStartParameter().getMaxWorkerCount());
+        extension.getProcessInSeparateTasks().convention(false);
+        extension.getPropertyMapImplementation().convention(ORDERED);
+        extension.getPropertyMapStorage().convention(OWNING_CLASS);
+        extension.getFoldConstantConditions().convention(false);
+        extension.getFoldPureMethodCalls().convention(false);
+        extension.getResolvePropertiesLazily().convention(false);
 
         var properties = getObjects().mapProperty(String.class, String.class);
-        properties.value(getProviders().provider(() -> {
-            var result = new LinkedHashMap<String, String>();
-            extension.getProperties().get().forEach((Object key, Object value) -> {
-                key = unwrapProviders(key);
-                value = unwrapProviders(value);
-                if (key == null || value == null) {
-                    return;
-                }
-
-                result.put(key.toString(), value.toString());
-            });
-            return result;
-        })).finalizeValueOnRead();
+        var rawProperties = extension.getProperties();
+        properties.value(getProviders().provider(() -> resolveProperties(rawProperties, null))).finalizeValueOnRead();
+
+        var classpathCache = project.getGradle().getSharedServices().registerIfAbsent(
+            ClasspathCacheService.class.getName() + '@' + identityHashCode(ClasspathCacheService.class),
+            ClasspathCacheService.class,
+            spec -> spec.getParameters().getMaxSize().set(
+                getProviders().gradleProperty(ClasspathCacheService.MAX_SIZE_GRADLE_PROPERTY)
+                    .map(Integer::parseInt)
+                    .orElse(ClasspathCacheService.DEFAULT_MAX_SIZE)
+            )
+        );
+
+        var processingPool = project.getGradle().getSharedServices().registerIfAbsent(
+            ProcessingPoolService.class.getName() + '@' + identityHashCode(ProcessingPoolService.class),
+            ProcessingPoolService.class,
+            spec -> spec.getParameters().getMaxThreads().set(
+                project.getGradle().getStartParameter().getMaxWorkerCount()
+            )
+        );
+
+        var rewrittenClassesCache = project.getGradle().getSharedServices().registerIfAbsent(
+            RewrittenClassesCacheService.class.getName() + '@' + identityHashCode(RewrittenClassesCacheService.class),
+            RewrittenClassesCacheService.class,
+            spec -> {
+                spec.getParameters().getDirectory().set(new File(
+                    project.getGradle().getGradleUserHomeDir(),
+                    RewrittenClassesCacheService.CACHE_DIR
+                ));
+                spec.getParameters().getMaxSizeMegabytes().set(
+                    getProviders().gradleProperty(RewrittenClassesCacheService.MAX_SIZE_GRADLE_PROPERTY)
+                        .map(Integer::parseInt)
+                        .orElse(RewrittenClassesCacheService.DEFAULT_MAX_SIZE_MEGABYTES)
+                );
+            }
+        );
+
+        project.getTasks().withType(InlineBuildTimeConstantsInArchive.class).configureEach(task -> {
+            task.getProperties().convention(createLazyProperties(
+                extension,
+                properties,
+                task.getArchiveFile().map(BuildTimeConstantsPlugin::getArchivePropertyReferences)
+            ));
+            task.getPropertyMapImplementation().convention(extension.getPropertyMapImplementation());
+            task.getPropertyMapStorage().convention(extension.getPropertyMapStorage());
+            task.getFoldConstantConditions().convention(extension.getFoldConstantConditions());
+            task.getFoldPureMethodCalls().convention(extension.getFoldPureMethodCalls());
+            task.getClasspathCache().set(classpathCache);
+            task.usesService(classpathCache);
+            task.getMetricsReportFile().set(getMetricsReportFile(project, task.getName()));
+        });
 
-        var processingAction = getObjects().newInstance(ClassFileProcessorAction.class);
-        processingAction.getProperties().set(properties);
+        var separateTasks = extension.getProcessInSeparateTasks();
+        var separateTaskNames = getObjects().setProperty(String.class);
+
+        project.getPluginManager().withPlugin("java", __ -> {
+            var sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
+            sourceSets.configureEach(sourceSet ->
+                configureSeparateTask(
+                    project,
+                    sourceSet,
+                    sourceSet.getJava(),
+                    properties,
+                    classpathCache,
+                    processingPool,
+                    rewrittenClassesCache,
+                    separateTaskNames
+                )
+            );
+
+            LANGUAGE_PLUGIN_SOURCE_DIRECTORY_SETS.forEach((pluginId, sourceDirectorySetName) ->
+                project.getPluginManager().withPlugin(pluginId, ___ ->
+                    sourceSets.configureEach(sourceSet -> {
+                        var sourceDirectorySet = sourceSet.getExtensions().findByName(sourceDirectorySetName);
+                        if (sourceDirectorySet instanceof SourceDirectorySet) {
+                            configureSeparateTask(
+                                project,
+                                sourceSet,
+                                (SourceDirectorySet) sourceDirectorySet,
+                                properties,
+                                classpathCache,
+                                processingPool,
+                                rewrittenClassesCache,
+                                separateTaskNames
+                            );
+                        }
+                    })
+                )
+            );
+        });
 
         project.getTasks()
             .matching(JvmLanguageCompilationUtils::isJvmLanguageCompileTask)
             .configureEach(task -> {
                 task.dependsOn(extension.getCompilationDependencies());
 
+                var inPlace = getProviders().provider(() ->
+                    !separateTasks.get() || !separateTaskNames.get().contains(task.getName())
+                );
+
                 task.getInputs().property(
                     BuildTimeConstantsExtension.class.getSimpleName() + ".properties",
-                    properties
+                    inPlace.flatMap(it -> it ? properties : getProviders().provider(() -> null))
+                ).optional(true);
+                task.getInputs().property(
+                    BuildTimeConstantsExtension.class.getSimpleName() + ".propertyMapImplementation",
+                    inPlace.flatMap(it -> it
+                        ? extension.getPropertyMapImplementation()
+                        : getProviders().provider(() -> null)
+                    )
                 ).optional(true);
+                task.getInputs().property(
+                    BuildTimeConstantsExtension.class.getSimpleName() + ".propertyMapStorage",
+                    inPlace.flatMap(it -> it
+                        ? extension.getPropertyMapStorage()
+                        : getProviders().provider(() -> null)
+                    )
+                ).optional(true);
+                task.getInputs().property(
+                    BuildTimeConstantsExtension.class.getSimpleName() + ".sharedPropertyMapsOutputName",
+                    inPlace.flatMap(it -> it
+                        ? getSharedPropertyMapsOutputName(project, task)
+                        : getProviders().provider(() -> null)
+                    )
+                ).optional(true);
+                task.getInputs().property(
+                    BuildTimeConstantsExtension.class.getSimpleName() + ".foldConstantConditions",
+                    inPlace.flatMap(it -> it
+                        ? extension.getFoldConstantConditions()
+                        : getProviders().provider(() -> null)
+                    )
+                ).optional(true);
+                task.getInputs().property(
+                    BuildTimeConstantsExtension.class.getSimpleName() + ".foldPureMethodCalls",
+                    inPlace.flatMap(it -> it
+                        ? extension.getFoldPureMethodCalls()
+                        : getProviders().provider(() -> null)
+                    )
+                ).optional(true);
+
+                var snapshotAction = getObjects().newInstance(ClassFilesSnapshotAction.class);
+                snapshotAction.getEnabled().set(inPlace);
+                task.doFirst(snapshotAction);
 
+                var processingAction = getObjects().newInstance(ClassFileProcessorAction.class);
+                // not resolved if the class files are processed by a separate task, which can resolve only
+                // referenced properties
+                processingAction.getProperties().set(
+                    inPlace.flatMap(it -> it ? properties : getProviders().provider(() -> null))
+                );
+                processingAction.getParallelism().set(extension.getParallelism());
+                processingAction.getProcessingPool().set(processingPool);
+                task.usesService(processingPool);
+                processingAction.getPropertyMapImplementation().set(extension.getPropertyMapImplementation());
+                processingAction.getPropertyMapStorage().set(extension.getPropertyMapStorage());
+                processingAction.getSharedPropertyMapsOutputName().set(getSharedPropertyMapsOutputName(project, task));
+                processingAction.getFoldConstantConditions().set(extension.getFoldConstantConditions());
+                processingAction.getFoldPureMethodCalls().set(extension.getFoldPureMethodCalls());
+                processingAction.getClasspathCache().set(classpathCache);
+                task.usesService(classpathCache);
+                processingAction.getRewrittenClassesCache().set(rewrittenClassesCache);
+                task.usesService(rewrittenClassesCache);
+                processingAction.getMetricsReportFile().set(getMetricsReportFile(project, task.getName()));
+                processingAction.getEnabled().set(inPlace);
                 task.doLast(processingAction);
             });
     }
 
+    /**
+     * Registers {@link InlineBuildTimeConstants} task for the source directory set.
+     *
+     * <p>If {@link BuildTimeConstantsExtension#getProcessInSeparateTasks()} is enabled, the compilation task
+     * writes class files to an intermediate directory, and the registered task writes processed class files
+     * to the source directory set's destination directory (which is a part of {@link SourceSetOutput#getClassesDirs()}).
+     */
+    private void configureSeparateTask(
+        Project project,
+        SourceSet sourceSet,
+        SourceDirectorySet sourceDirectorySet,
+        Provider<Map<String, String>> properties,
+        Provider<ClasspathCacheService> classpathCache,
+        Provider<ProcessingPoolService> processingPool,
+        Provider<RewrittenClassesCacheService> rewrittenClassesCache,
+        SetProperty<String> separateTaskNames
+    ) {
+        var extension = project.getExtensions().getByType(BuildTimeConstantsExtension.class);
+        var separateTasks = extension.getProcessInSeparateTasks();
+
+        var compileTaskName = sourceSet.getCompileTaskName(sourceDirectorySet.getName());
+        var compileTask = project.getTasks().withType(AbstractCompile.class).named(compileTaskName);
+        separateTaskNames.add(compileTaskName);
+
+        var intermediateDir = project.getLayout().getBuildDirectory().dir(format(
+            "tmp/build-time-constants/classes/%s/%s",
+            sourceDirectorySet.getName(),
+            sourceSet.getName()
+        ));
+        var destinationDir = sourceDirectorySet.getDestinationDirectory();
+        compileTask.configure(task ->
+            task.getDestinationDirectory().set(
+                separateTasks.flatMap(separate -> separate ? intermediateDir : destinationDir)
+            )
+        );
+
+        var processingTaskName = sourceSet.getTaskName("inlineBuildTimeConstants", sourceDirectorySet.getName());
+        var processingTask = project.getTasks().register(
+            processingTaskName,
+            InlineBuildTimeConstants.class,
+            task -> {
+                task.onlyIf(__ -> separateTasks.get());
+                task.getClassesDirectory().set(onlyIfSeparateTasks(
+                    separateTasks,
+                    compileTask.flatMap(AbstractCompile::getDestinationDirectory)
+                ));
+                task.getClasspath().from(compileTask.map(AbstractCompile::getClasspath));
+                task.getProperties().set(createLazyProperties(
+                    extension,
+                    properties,
+                    task.getClassesDirectory().map(BuildTimeConstantsPlugin::getClassesDirectoryPropertyReferences)
+                ));
+                task.getPropertyMapImplementation().set(extension.getPropertyMapImplementation());
+                task.getPropertyMapStorage().set(extension.getPropertyMapStorage());
+                task.getSharedPropertyMapsOutputName().set(getSharedPropertyMapsOutputName(project, task));
+                task.getFoldConstantConditions().set(extension.getFoldConstantConditions());
+                task.getFoldPureMethodCalls().set(extension.getFoldPureMethodCalls());
+                task.getParallelism().set(extension.getParallelism());
+                task.getProcessingPool().set(processingPool);
+                task.usesService(processingPool);
+                task.getClasspathCache().set(classpathCache);
+                task.usesService(classpathCache);
+                task.getRewrittenClassesCache().set(rewrittenClassesCache);
+                task.usesService(rewrittenClassesCache);
+                task.getDestinationDirectory().set(onlyIfSeparateTasks(separateTasks, destinationDir));
+                task.getStateDirectory().set(project.getLayout().getBuildDirectory().dir(format(
+                    "tmp/build-time-constants/%s",
+                    processingTaskName
+                )));
+                task.getMetricsReportFile().set(getMetricsReportFile(project, processingTaskName));
+            }
+        );
+
+        // `compiledBy()` sets the property returned by the mapping function to the source directory set's destination
+        // directory, so a new property is returned to keep the compile task's destination directory untouched
+        sourceDirectorySet.compiledBy(processingTask, __ -> {
+            var classesDir = getObjects().directoryProperty();
+            classesDir.set(separateTasks.flatMap(separate -> separate
+                ? processingTask.flatMap(InlineBuildTimeConstants::getDestinationDirectory)
+                : compileTask.flatMap(AbstractCompile::getDestinationDirectory)
+            ));
+            return classesDir;
+        });
+
+        var classesDirs = sourceSet.getOutput().getClassesDirs();
+        if (classesDirs instanceof ConfigurableFileCollection) {
+            ((ConfigurableFileCollection) classesDirs).builtBy(separateTasks.map(separate ->
+                separate ? List.of(processingTask) : List.of()
+            ));
+        }
+    }
+
+    /**
+     * Returns a provider without a value if {@link BuildTimeConstantsExtension#getProcessInSeparateTasks()} is
+     * disabled. So, {@link InlineBuildTimeConstants} tasks don't declare inputs and outputs that overlap with
+     * outputs of compilation tasks in this mode.
+     */
+    private <T> Provider<T> onlyIfSeparateTasks(Provider<Boolean> separateTasks, Provider<T> provider) {
+        return separateTasks.flatMap(separate -> separate ? provider : getProviders().provider(() -> null));
+    }
+
+    /**
+     * Creates properties that are resolved lazily if
+     * {@link BuildTimeConstantsExtension#getResolvePropertiesLazily()} is enabled: only properties referenced by
+     * class files are resolved, and the class files are scanned when the value is read for the first time.
+     */
+    private MapProperty<String, String> createLazyProperties(
+        BuildTimeConstantsExtension extension,
+        Provider<Map<String, String>> properties,
+        Provider<PropertyReferences> propertyReferences
+    ) {
+        // The mapping function is stored in the configuration cache together with the task. So, only the raw
+        // properties are captured, not the extension, which can reference objects that can't be serialized.
+        var rawProperties = extension.getProperties();
+        var result = getObjects().mapProperty(String.class, String.class);
+        result.value(extension.getResolvePropertiesLazily().flatMap(lazily -> lazily
+            ? propertyReferences.map(references -> resolveProperties(rawProperties, references))
+            : properties
+        )).finalizeValueOnRead();
+        return result;
+    }
+
+    /**
+     * Unwraps keys and values of {@link BuildTimeConstantsExtension#getProperties()}. If references are passed,
+     * values of not referenced properties are not unwrapped, so their providers are not invoked.
+     */
+    private static Map<String, String> resolveProperties(
+        MapProperty<String, Object> rawProperties,
+        @Nullable PropertyReferences propertyReferences
+    ) {
+        var result = new LinkedHashMap<String, String>();
+        rawProperties.get().forEach((Object key, Object value) -> {
+            key = unwrapProviders(key);
+            if (key == null) {
+                return;
+            }
+
+            var name = key.toString();
+            if (propertyReferences != null && !propertyReferences.isReferenced(name)) {
+                return;
+            }
+
+            value = unwrapProviders(value);
+            if (value == null) {
+                return;
+            }
+
+            result.put(name, value.toString());
+        });
+        return result;
+    }
+
+    @SneakyThrows
+    private static PropertyReferences getClassesDirectoryPropertyReferences(Directory classesDirectory) {
+        var result = new PropertyReferences();
+        result.addClassesDirectory(classesDirectory.getAsFile().toPath());
+        return result;
+    }
+
+    @SneakyThrows
+    private static PropertyReferences getArchivePropertyReferences(RegularFile archiveFile) {
+        var result = new PropertyReferences();
+        result.addArchive(archiveFile.getAsFile().toPath());
+        return result;
+    }
+
+    /**
+     * Includes the project group and the root project name, so holder classes of libraries with the same task
+     * paths don't clash too.
+     */
+    private Provider<String> getSharedPropertyMapsOutputName(Project project, Task task) {
+        return getProviders().provider(() -> format(
+            "%s:%s%s",
+            project.getGroup(),
+            project.getRootProject().getName(),
+            task.getPath()
+        ));
+    }
+
+    private static Provider<RegularFile> getMetricsReportFile(Project project, String taskName) {
+        return project.getLayout().getBuildDirectory().file(format(
+            "reports/build-time-constants/%s.json",
+            taskName
+        ));
+    }
+
 
     @Inject
     protected abstract ObjectFactory getObjects();
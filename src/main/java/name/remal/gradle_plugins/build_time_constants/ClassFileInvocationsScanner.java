@@ -0,0 +1,209 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.StringConcatFolder.STRING_BUILDER_INTERNAL_NAME;
+import static name.remal.gradle_plugins.build_time_constants.StringConcatFolder.STRING_CONCAT_FACTORY_INTERNAL_NAME;
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+
+import java.util.HashSet;
+import java.util.Set;
+import lombok.Getter;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Finds methods that invoke methods of {@code BuildTimeConstants} classes, without building a tree.
+ *
+ * <p>Only these methods are rewritten by {@link ClassFileProcessor}. Other methods are copied as is.
+ */
+class ClassFileInvocationsScanner extends ClassVisitor {
+
+    private final Set<String> ownerInternalNames;
+
+    private final Set<String> methodsWithInvocations = new HashSet<>();
+
+    private final Set<String> methodsWithStringConcatenations = new HashSet<>();
+
+    /**
+     * Annotations of the class that are not visible at runtime.
+     */
+    @Getter
+    private final Set<String> invisibleAnnotationDescriptors = new HashSet<>();
+
+    /**
+     * {@code true} if any of the invoked methods returns a map, a list, or an array, which is stored in a synthetic
+     * field.
+     */
+    @Getter
+    private boolean storedValueInvocationFound;
+
+    /**
+     * {@code true} if a stack map frame was found between an invocation and its {@code LDC} parameter, so
+     * substituting the invocation invalidates the frame.
+     */
+    @Getter
+    private boolean framesComputationRequired;
+
+    public ClassFileInvocationsScanner(Set<String> ownerInternalNames) {
+        super(ASM9);
+        this.ownerInternalNames = ownerInternalNames;
+    }
+
+    public boolean hasInvocations() {
+        return !methodsWithInvocations.isEmpty();
+    }
+
+    public boolean hasInvocations(String methodName, String methodDescriptor) {
+        return methodsWithInvocations.contains(methodName + methodDescriptor);
+    }
+
+    /**
+     * Returns {@code true} if the method concatenates strings, so the concatenation can become constant after
+     * substitution. See {@link StringConcatFolder}.
+     */
+    public boolean hasStringConcatenations(String methodName, String methodDescriptor) {
+        return methodsWithStringConcatenations.contains(methodName + methodDescriptor);
+    }
+
+    @Nullable
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        if (!visible) {
+            invisibleAnnotationDescriptors.add(descriptor);
+        }
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access,
+        String name,
+        String descriptor,
+        @Nullable String signature,
+        String @Nullable [] exceptions
+    ) {
+        return new MethodVisitor(api) {
+
+            private boolean ldcPending;
+
+            private boolean frameAfterLdc;
+
+            @Override
+            public void visitLdcInsn(Object value) {
+                if (!ldcPending) {
+                    // a frame between LDC parameters of the same invocation invalidates the frame too
+                    frameAfterLdc = false;
+                }
+                ldcPending = true;
+            }
+
+            @Override
+            public void visitLabel(Label label) {
+                // labels don't break LDC + INVOKESTATIC sequences
+            }
+
+            @Override
+            public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+                if (ldcPending) {
+                    frameAfterLdc = true;
+                }
+            }
+
+            @Override
+            public void visitMethodInsn(
+                int opcode,
+                String owner,
+                String methodName,
+                String methodDescriptor,
+                boolean isInterface
+            ) {
+                if (ownerInternalNames.contains(owner)) {
+                    methodsWithInvocations.add(name + descriptor);
+                    if (opcode == INVOKESTATIC && ldcPending) {
+                        if (methodName.endsWith("Properties")
+                            || methodName.endsWith("ListProperty")
+                            || methodName.endsWith("ArrayProperty")
+                        ) {
+                            storedValueInvocationFound = true;
+                        }
+                        if (frameAfterLdc) {
+                            framesComputationRequired = true;
+                        }
+                    }
+                } else if (owner.equals(STRING_BUILDER_INTERNAL_NAME) && methodName.equals("toString")) {
+                    methodsWithStringConcatenations.add(name + descriptor);
+                }
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitInsn(int opcode) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitIntInsn(int opcode, int operand) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitVarInsn(int opcode, int varIndex) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescriptor) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitInvokeDynamicInsn(
+                String indyName,
+                String indyDescriptor,
+                Handle bootstrapMethodHandle,
+                Object... bootstrapMethodArguments
+            ) {
+                if (bootstrapMethodHandle.getOwner().equals(STRING_CONCAT_FACTORY_INTERNAL_NAME)) {
+                    methodsWithStringConcatenations.add(name + descriptor);
+                }
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitJumpInsn(int opcode, Label label) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitIincInsn(int varIndex, int increment) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                ldcPending = false;
+            }
+
+            @Override
+            public void visitMultiANewArrayInsn(String arrayDescriptor, int numDimensions) {
+                ldcPending = false;
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,36 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.ORDERED;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.OWNING_CLASS;
+
+import lombok.Value;
+
+/**
+ * Options of {@link ClassFileProcessor} that change the generated bytecode.
+ */
+@Value
+class ClassFileProcessingOptions {
+
+    public static final ClassFileProcessingOptions DEFAULT = new ClassFileProcessingOptions(
+        ORDERED,
+        OWNING_CLASS,
+        false,
+        false
+    );
+
+
+    PropertyMapImplementation propertyMapImplementation;
+
+    PropertyMapStorage propertyMapStorage;
+
+    /**
+     * See {@link ConstantConditionsFolder}.
+     */
+    boolean foldConstantConditions;
+
+    /**
+     * See {@link PureMethodCallsFolder}.
+     */
+    boolean foldPureMethodCalls;
+
+}
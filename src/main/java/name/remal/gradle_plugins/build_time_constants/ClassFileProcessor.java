@@ -3,55 +3,98 @@ package name.remal.gradle_plugins.build_time_constants;
 import static com.google.common.hash.Hashing.sha512;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.Files.newInputStream;
-import static java.nio.file.Files.write;
+import static java.nio.file.Files.readAllBytes;
 import static name.remal.gradle_plugins.build_time_constants.BytecodeTestUtils.wrapWithTestClassVisitors;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.MAX_CONSTANT_UTF8_LENGTH;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.createConstantInsn;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getModifiedUtf8Length;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.PARSING;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.REWRITING;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.WRITING;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.COMPACT;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.LAZY;
 import static name.remal.gradle_plugins.toolkit.InTestFlags.isInUnitTest;
-import static name.remal.gradle_plugins.toolkit.StringUtils.escapeRegex;
 import static name.remal.gradle_plugins.toolkit.StringUtils.substringAfterLast;
 import static name.remal.gradle_plugins.toolkit.StringUtils.substringBeforeLast;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+import static org.objectweb.asm.Opcodes.AASTORE;
 import static org.objectweb.asm.Opcodes.ACC_FINAL;
 import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
 import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
 import static org.objectweb.asm.Opcodes.ACC_STATIC;
 import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
-import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.ACC_VOLATILE;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
 import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.DUP_X1;
+import static org.objectweb.asm.Opcodes.DUP_X2;
+import static org.objectweb.asm.Opcodes.F_FULL;
+import static org.objectweb.asm.Opcodes.F_SAME1;
 import static org.objectweb.asm.Opcodes.GETSTATIC;
-import static org.objectweb.asm.Opcodes.ICONST_0;
-import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IASTORE;
+import static org.objectweb.asm.Opcodes.IFNONNULL;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INTEGER;
 import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
 import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
-import static org.objectweb.asm.Opcodes.LCONST_0;
+import static org.objectweb.asm.Opcodes.LASTORE;
 import static org.objectweb.asm.Opcodes.NEW;
+import static org.objectweb.asm.Opcodes.NEWARRAY;
 import static org.objectweb.asm.Opcodes.POP;
 import static org.objectweb.asm.Opcodes.PUTSTATIC;
 import static org.objectweb.asm.Opcodes.RETURN;
-import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.SWAP;
+import static org.objectweb.asm.Opcodes.T_BYTE;
+import static org.objectweb.asm.Opcodes.T_INT;
+import static org.objectweb.asm.Opcodes.T_LONG;
+import static org.objectweb.asm.Opcodes.V11;
+import static org.objectweb.asm.Opcodes.V1_6;
+import static org.objectweb.asm.Opcodes.V1_8;
+import static org.objectweb.asm.Opcodes.V9;
 import static org.objectweb.asm.Type.getDescriptor;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.Value;
 import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
 import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.FrameNode;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
 import org.objectweb.asm.tree.IntInsnNode;
@@ -62,6 +105,10 @@ import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 
+/**
+ * Substitutes invocations of {@code BuildTimeConstants} methods in a single class file.
+ * A new instance should be created for every class file.
+ */
 @RequiredArgsConstructor
 class ClassFileProcessor {
 
@@ -71,6 +118,48 @@ class ClassFileProcessor {
     private static final String LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME =
         "name/remal/gradle_plugins/api/BuildTimeConstants";
 
+    private static final byte[] BUILD_TIME_CONSTANTS_INTERNAL_NAME_BYTES =
+        BUILD_TIME_CONSTANTS_INTERNAL_NAME.getBytes(UTF_8);
+
+    private static final byte[] LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME_BYTES =
+        LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME.getBytes(UTF_8);
+
+    static final Set<String> BUILD_TIME_CONSTANTS_INTERNAL_NAMES = Set.of(
+        BUILD_TIME_CONSTANTS_INTERNAL_NAME,
+        LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME
+    );
+
+    private static final int CONSTANT_UTF8_TAG = 1;
+
+    /**
+     * The max number of constant parameters of {@code BuildTimeConstants} methods.
+     */
+    private static final int MAX_PARAMETERS_COUNT = 2;
+
+    /**
+     * The max number of entries of {@code Map.of()} overloads.
+     */
+    private static final int MAP_OF_MAX_ENTRIES = 10;
+
+    /**
+     * Synthetic method that reads a resource of the class, see {@link PropertyResources}.
+     */
+    private static final String RESOURCE_READING_METHOD_NAME = "$readBuildTimeConstantsResource";
+
+    private static final String RESOURCE_READING_METHOD_DESCRIPTOR = "(Ljava/lang/String;I)[B";
+
+    /**
+     * {@code ConstantBootstraps.invoke()}, which creates a dynamic constant by invoking a method handle.
+     */
+    private static final Handle CONSTANT_BOOTSTRAPS_INVOKE = new Handle(
+        H_INVOKESTATIC,
+        "java/lang/invoke/ConstantBootstraps",
+        "invoke",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/invoke/MethodHandle;"
+            + "[Ljava/lang/Object;)Ljava/lang/Object;",
+        false
+    );
+
     @SuppressWarnings("java:S5803")
     private static final String INLINE_BUILD_TIME_CONSTANTS_IN_TESTS_ONLY_DESC =
         getDescriptor(InlineBuildTimeConstantsInTestsOnly.class);
@@ -82,270 +171,1316 @@ class ClassFileProcessor {
     private static final boolean PUT_PROPERTY_MAPS_TO_FIELDS = true;
     private static final boolean IN_TEST = isInUnitTest();
 
-    private final Path sourcePath;
-    private final Path targetPath;
-    private final Map<String, String> properties;
-    private final ClassLoader classLoader;
+    private final CompiledProperties properties;
+    private final ClassHierarchyResolver classHierarchyResolver;
+    private final ProcessingMetrics metrics;
+    private final ClassFileProcessingOptions options;
+
+    /**
+     * Receives property values that are read from generated resources by the processed class.
+     */
+    private final PropertyResources propertyResources;
+
+    /**
+     * If set, property maps are stored in {@link SharedPropertyMaps} holder classes instead of the processed class.
+     */
+    @Nullable
+    private final SharedPropertyMaps sharedPropertyMaps;
+
+    /**
+     * If set, rewritten class files are taken from and put to this cache.
+     */
+    @Nullable
+    private final RewrittenClassesCache rewrittenClassesCache;
 
     private boolean changed;
 
+    /**
+     * {@code false} if the rewritten class depends on something besides the source class file and property values,
+     * like the classpath or generated resources. Such classes are not put to {@link #rewrittenClassesCache}.
+     */
+    @Getter
+    private boolean cacheable = true;
+
+    /**
+     * Names of properties read by the class. Used to find classes affected by property value changes.
+     */
+    @Getter
+    private final Set<String> usedPropertyNames = new LinkedHashSet<>();
+
+    /**
+     * Property name patterns read by the class. Used to find classes affected by property value changes.
+     */
+    @Getter
+    private final Set<String> usedPropertyNamePatterns = new LinkedHashSet<>();
+
+    /**
+     * Processes the class file and writes the result to the target path.
+     *
+     * <p>The target file is not rewritten if it already has the processed bytecode, so its last modified time is
+     * kept.
+     *
+     * @return {@code true} if the class file was changed, {@code false} otherwise
+     */
     @SneakyThrows
-    @SuppressWarnings({"java:S3776", "ReferenceEquality"})
-    public void process() {
-        var classNode = new ClassNode();
-        ClassReader classReader;
-        try (var inputStream = newInputStream(sourcePath)) {
-            classReader = new ClassReader(inputStream);
-            classReader.accept(classNode, 0);
+    public boolean process(Path sourcePath, Path targetPath) {
+        var processedBytecode = process(readAllBytes(sourcePath));
+        if (processedBytecode == null) {
+            return false;
         }
 
-        if (BUILD_TIME_CONSTANTS_INTERNAL_NAME.equals(classNode.name)
-            || LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME.equals(classNode.name)
-        ) {
-            return;
+        var writingTimer = metrics.start(WRITING);
+        if (writeIfChanged(targetPath, processedBytecode)) {
+            metrics.bytesWritten(processedBytecode.length);
+        } else {
+            metrics.writeSkipped();
         }
+        writingTimer.stop();
+        return true;
+    }
 
-        if (classNode.invisibleAnnotations != null && !IN_TEST) {
-            for (var annotation : classNode.invisibleAnnotations) {
-                if (annotation.desc.equals(INLINE_BUILD_TIME_CONSTANTS_IN_TESTS_ONLY_DESC)
-                    || annotation.desc.equals(INLINE_BUILD_TIME_CONSTANTS_IN_TESTS_ONLY_LEGACY_DESC)
-                ) {
-                    return;
+    /**
+     * Processes the class file bytecode.
+     *
+     * <p>The class is rewritten by streaming it from {@link ClassReader} to {@link ClassWriter}. Only methods that
+     * invoke methods of {@code BuildTimeConstants} classes are rewritten, other methods and the constant pool are
+     * copied as is.
+     *
+     * @return processed bytecode, or {@code null} if the class file was not changed
+     */
+    public byte @Nullable [] process(byte[] bytecode) {
+        var parsingTimer = metrics.start(PARSING);
+        var classReader = new ClassReader(bytecode);
+        var scanner = scan(classReader, bytecode);
+        parsingTimer.stop();
+        metrics.classParsed(bytecode.length);
+        if (scanner == null) {
+            return null;
+        }
+
+        var rewritingTimer = metrics.start(REWRITING);
+        try {
+            var cacheKey = rewrittenClassesCache != null && sharedPropertyMaps == null
+                ? rewrittenClassesCache.getClassKey(bytecode, options)
+                : null;
+            if (cacheKey != null) {
+                var cachedClass = rewrittenClassesCache.get(cacheKey, properties);
+                if (cachedClass != null) {
+                    usedPropertyNames.addAll(cachedClass.getUsedPropertyNames());
+                    usedPropertyNamePatterns.addAll(cachedClass.getUsedPropertyNamePatterns());
+                    metrics.classTakenFromCache();
+                    return cachedClass.getBytecode();
                 }
             }
+
+            var rewrittenBytecode = rewrite(classReader, scanner);
+            if (cacheKey != null && rewrittenBytecode != null && cacheable) {
+                rewrittenClassesCache.put(
+                    cacheKey,
+                    properties,
+                    usedPropertyNames,
+                    usedPropertyNamePatterns,
+                    rewrittenBytecode
+                );
+            }
+            return rewrittenBytecode;
+
+        } finally {
+            rewritingTimer.stop();
+        }
+    }
+
+    /**
+     * Finds invocations of {@code BuildTimeConstants} methods.
+     *
+     * @return the scanner, or {@code null} if the class file doesn't have to be processed
+     */
+    @Nullable
+    private static ClassFileInvocationsScanner scan(ClassReader classReader, byte[] bytecode) {
+        if (!hasBuildTimeConstantsReferences(classReader, bytecode)) {
+            return null;
+        }
+
+        var className = classReader.getClassName();
+        if (BUILD_TIME_CONSTANTS_INTERNAL_NAME.equals(className)
+            || LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME.equals(className)
+        ) {
+            return null;
         }
 
+        var scanner = new ClassFileInvocationsScanner(BUILD_TIME_CONSTANTS_INTERNAL_NAMES);
+        classReader.accept(scanner, SKIP_DEBUG);
+        if (!scanner.hasInvocations()) {
+            return null;
+        }
 
-        processClass(classNode);
+        if (!IN_TEST) {
+            var invisibleAnnotations = scanner.getInvisibleAnnotationDescriptors();
+            if (invisibleAnnotations.contains(INLINE_BUILD_TIME_CONSTANTS_IN_TESTS_ONLY_DESC)
+                || invisibleAnnotations.contains(INLINE_BUILD_TIME_CONSTANTS_IN_TESTS_ONLY_LEGACY_DESC)
+            ) {
+                return null;
+            }
+        }
 
+        return scanner;
+    }
 
-        if (changed) {
-            var classWriter = new ClassWriter(COMPUTE_MAXS | COMPUTE_FRAMES) {
+    private byte @Nullable [] rewrite(ClassReader classReader, ClassFileInvocationsScanner scanner) {
+        final ClassWriter classWriter;
+        if (scanner.isFramesComputationRequired()) {
+            classWriter = new ClassWriter(classReader, COMPUTE_MAXS | COMPUTE_FRAMES) {
                 @Override
-                protected ClassLoader getClassLoader() {
-                    return classLoader;
+                protected String getCommonSuperClass(String type1, String type2) {
+                    cacheable = false;
+                    return classHierarchyResolver.getCommonSuperClass(type1, type2);
                 }
             };
-            ClassVisitor classVisitor = classWriter;
-            if (IN_TEST) {
-                classVisitor = wrapWithTestClassVisitors(classVisitor);
-            }
-            classNode.accept(classVisitor);
-            var bytecode = classWriter.toByteArray();
+        } else {
+            classWriter = new ClassWriter(classReader, COMPUTE_MAXS);
+        }
+        ClassVisitor classVisitor = classWriter;
+        if (IN_TEST) {
+            classVisitor = wrapWithTestClassVisitors(classVisitor);
+        }
+        classReader.accept(new ProcessingClassVisitor(classVisitor, scanner), 0);
 
-            if (sourcePath != targetPath) {
-                var targetDirPath = targetPath.getParent();
-                if (targetDirPath != null) {
-                    Files.createDirectories(targetDirPath);
-                }
+        if (!changed) {
+            return null;
+        }
+
+        metrics.classRewritten();
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Checks the constant pool for {@code CONSTANT_Utf8} entries equal to internal names of
+     * {@code BuildTimeConstants} classes, without building a tree. A class that invokes any of the methods
+     * must reference the owner class, so if there are no such entries, the class can be skipped.
+     */
+    static boolean hasBuildTimeConstantsReferences(ClassReader classReader, byte[] bytecode) {
+        for (int i = 1; i < classReader.getItemCount(); ++i) {
+            var offset = classReader.getItem(i);
+            if (offset <= 0 || bytecode[offset - 1] != CONSTANT_UTF8_TAG) {
+                continue;
             }
 
-            write(targetPath, bytecode);
+            var length = classReader.readUnsignedShort(offset);
+            if (isUtf8Equal(bytecode, offset + 2, length, BUILD_TIME_CONSTANTS_INTERNAL_NAME_BYTES)
+                || isUtf8Equal(bytecode, offset + 2, length, LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME_BYTES)
+            ) {
+                return true;
+            }
         }
+        return false;
     }
 
+    private static boolean isUtf8Equal(byte[] bytecode, int offset, int length, byte[] expected) {
+        return length == expected.length
+            && Arrays.equals(bytecode, offset, offset + length, expected, 0, length);
+    }
+
+
+    private class ProcessingClassVisitor extends ClassVisitor {
+
+        private final ClassFileInvocationsScanner scanner;
+
+        private final Set<String> fieldNames = new HashSet<>();
+
+        /**
+         * Synthetic fields that store maps, lists, and arrays.
+         */
+        private final Map<String, StoredValue> valueFields = new LinkedHashMap<>();
+
+        private final Set<String> methodNames = new HashSet<>();
+
+        /**
+         * Methods that create maps, lists, and arrays for dynamic constants, see {@link PropertyMapStorage#LAZY}.
+         */
+        private final Map<String, StoredValue> valueMethods = new LinkedHashMap<>();
+
+        /**
+         * Methods that read values from resources, see {@link PropertyResources}.
+         */
+        private final Map<String, ResourceValueMethod> resourceValueMethods = new LinkedHashMap<>();
+
+        private boolean resourceReadingMethodRequired;
+
+        private String className = "";
 
-    private void processClass(ClassNode classNode) {
-        if (classNode.methods.isEmpty()) {
-            return;
+        private boolean isInterface;
+
+        private int classVersion;
+
+        @Nullable
+        private MethodNode staticInitMethod;
+
+        public ProcessingClassVisitor(ClassVisitor classVisitor, ClassFileInvocationsScanner scanner) {
+            super(ASM9, classVisitor);
+            this.scanner = scanner;
         }
 
-        new ArrayList<>(classNode.methods).forEach(methodNode -> {
-            var instructions = methodNode.instructions;
-            if (instructions.size() == 0) {
-                return;
+        @Override
+        public void visit(
+            int version,
+            int access,
+            String name,
+            @Nullable String signature,
+            @Nullable String superName,
+            String @Nullable [] interfaces
+        ) {
+            this.className = name;
+            this.isInterface = (access & ACC_INTERFACE) != 0;
+            this.classVersion = version & 0xFFFF;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(
+            int access,
+            String name,
+            String descriptor,
+            @Nullable String signature,
+            @Nullable Object value
+        ) {
+            fieldNames.add(name);
+            return super.visitField(access, name, descriptor, signature, value);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+            int access,
+            String name,
+            String descriptor,
+            @Nullable String signature,
+            String @Nullable [] exceptions
+        ) {
+            methodNames.add(name);
+
+            MethodVisitor methodVisitor;
+            if (name.equals("<clinit>")
+                && descriptor.equals("()V")
+                && scanner.isStoredValueInvocationFound()
+            ) {
+                // value fields initialization is added at the end, when all value fields are known
+                staticInitMethod = new MethodNode(access, name, descriptor, signature, exceptions);
+                methodVisitor = staticInitMethod;
+            } else {
+                methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
             }
 
-            processInstructions(classNode, methodNode, instructions);
-
-            instructions.forEach(insn -> {
-                if (insn instanceof MethodInsnNode) {
-                    var methodInsn = (MethodInsnNode) insn;
-                    if (methodInsn.owner.equals(BUILD_TIME_CONSTANTS_INTERNAL_NAME)) {
-                        throw new BuildTimeConstantsException(format(
-                            "Invocation of %s.%s%s was not substituted in %s.%s%s."
-                                + " The most common reason is that not constants are used for method invocation.",
-                            methodInsn.owner,
-                            methodInsn.name,
-                            methodInsn.desc,
-                            classNode.name,
-                            methodNode.name,
-                            methodInsn.desc
-                        ));
+            if (!scanner.hasInvocations(name, descriptor)) {
+                // the method visitor of ClassWriter copies the method as is
+                return methodVisitor;
+            }
+
+            var foldStringConcatenations = scanner.hasStringConcatenations(name, descriptor);
+            if (foldStringConcatenations || options.isFoldPureMethodCalls() || options.isFoldConstantConditions()) {
+                var targetMethodVisitor = methodVisitor;
+                methodVisitor = new MethodNode(ASM9, access, name, descriptor, signature, exceptions) {
+                    @Override
+                    public void visitEnd() {
+                        if (foldStringConcatenations) {
+                            StringConcatFolder.fold(this);
+                        }
+                        // results of folded invocations can be operands of other invocations and concatenations:
+                        while (options.isFoldPureMethodCalls() && PureMethodCallsFolder.fold(this)) {
+                            if (foldStringConcatenations) {
+                                StringConcatFolder.fold(this);
+                            }
+                        }
+                        if (options.isFoldConstantConditions()) {
+                            ConstantConditionsFolder.fold(className, this);
+                        }
+                        accept(targetMethodVisitor);
                     }
-                }
+                };
+            }
+
+            return new ProcessingMethodVisitor(methodVisitor, this, name, descriptor);
+        }
+
+        @Override
+        public void visitEnd() {
+            metrics.syntheticMapFieldsAdded(valueFields.size());
+            valueFields.forEach((fieldName, value) ->
+                super.visitField(
+                    ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC,
+                    fieldName,
+                    value.getDescriptor(),
+                    null,
+                    null
+                ).visitEnd()
+            );
+
+            valueMethods.forEach((methodName, value) -> {
+                var methodVisitor = super.visitMethod(
+                    ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                    methodName,
+                    "()" + value.getDescriptor(),
+                    null,
+                    null
+                );
+                methodVisitor.visitCode();
+                value.getInitInsns().get().forEach(insn -> insn.accept(methodVisitor));
+                methodVisitor.visitInsn(ARETURN);
+                methodVisitor.visitMaxs(0, 0);
+                methodVisitor.visitEnd();
             });
-        });
+
+            resourceValueMethods.forEach(this::addResourceValueMethod);
+            if (resourceReadingMethodRequired && !methodNames.contains(RESOURCE_READING_METHOD_NAME)) {
+                addResourceReadingMethod();
+            }
+
+            if (!valueFields.isEmpty() && staticInitMethod == null) {
+                staticInitMethod = new MethodNode(
+                    ACC_STATIC,
+                    "<clinit>",
+                    "()V",
+                    null,
+                    null
+                );
+            }
+
+            if (staticInitMethod != null) {
+                addValueFieldsInitialization(staticInitMethod.instructions);
+                staticInitMethod.accept(cv);
+            }
+
+            super.visitEnd();
+        }
+
+        private void addValueFieldsInitialization(InsnList instructions) {
+            if (valueFields.isEmpty()) {
+                return;
+            }
+
+            if (instructions.size() == 0) {
+                instructions.add(new LabelNode());
+                instructions.add(new InsnNode(RETURN));
+            }
+
+            var insnsToAdd = new InsnList();
+            valueFields.forEach((fieldName, value) -> {
+                value.getInitInsns().get().forEach(insnsToAdd::add);
+                insnsToAdd.add(new FieldInsnNode(
+                    PUTSTATIC,
+                    className,
+                    fieldName,
+                    value.getDescriptor()
+                ));
+            });
+
+            var prevInsn = getFirstLabelNode(instructions);
+            if (prevInsn == null || isFollowedByFrame(prevInsn)) {
+                // if the label is a jump target, the frame must stay right after it
+                instructions.insert(insnsToAdd);
+            } else {
+                instructions.insert(prevInsn, insnsToAdd);
+            }
+        }
+
+        private List<AbstractInsnNode> createConstantMapInsns(
+            String scope,
+            Object value,
+            Map<?, ?> values
+        ) {
+            return createStoredValueInsns(
+                scope,
+                value,
+                () -> SharedPropertyMaps.getFieldName(scope, value, values),
+                new StoredValue("Ljava/util/Map;", () -> createMapInsns(values))
+            );
+        }
+
+        private List<AbstractInsnNode> createConstantListInsns(
+            String scope,
+            Object value,
+            List<String> values
+        ) {
+            return createStoredValueInsns(
+                scope,
+                value,
+                () -> SharedPropertyMaps.getFieldName(scope, value, values),
+                new StoredValue("Ljava/util/List;", () -> createListInsns(values))
+            );
+        }
+
+        /**
+         * Creates instructions that push a copy of the array, as arrays are mutable. If the array is not stored,
+         * a new array is created instead.
+         */
+        private List<AbstractInsnNode> createConstantArrayInsns(
+            String scope,
+            Object value,
+            List<? extends Number> values,
+            Type arrayType
+        ) {
+            var storedValue = new StoredValue(arrayType.getDescriptor(), () -> createArrayInsns(values, arrayType));
+            if (!isValueStored()) {
+                return storedValue.getInitInsns().get();
+            }
+
+            var result = new ArrayList<>(createStoredValueInsns(
+                scope,
+                value,
+                () -> SharedPropertyMaps.getFieldName(scope, value, values),
+                storedValue
+            ));
+            result.add(new MethodInsnNode(
+                INVOKEVIRTUAL,
+                arrayType.getDescriptor(),
+                "clone",
+                "()Ljava/lang/Object;"
+            ));
+            result.add(new TypeInsnNode(CHECKCAST, arrayType.getDescriptor()));
+            return result;
+        }
+
+        /**
+         * Returns {@code false} if values can't be stored, and {@link #createStoredValueInsns} creates them on
+         * every invocation.
+         */
+        private boolean isValueStored() {
+            return sharedPropertyMaps != null
+                || (options.getPropertyMapStorage() == LAZY && classVersion >= V11)
+                || (PUT_PROPERTY_MAPS_TO_FIELDS && !isInterface);
+        }
+
+        /**
+         * Creates instructions that push a value that is created once, according to
+         * {@link ClassFileProcessingOptions#getPropertyMapStorage()}.
+         *
+         * @param sharedFieldName the field name in the shared holder class, based on the value contents
+         */
+        private List<AbstractInsnNode> createStoredValueInsns(
+            String scope,
+            Object value,
+            Supplier<String> sharedFieldName,
+            StoredValue storedValue
+        ) {
+            var descriptor = storedValue.getDescriptor();
+            var shared = sharedPropertyMaps;
+            if (shared != null) {
+                var holderInternalName = shared.getHolderInternalName(className);
+                var fieldName = sharedFieldName.get();
+                shared.add(holderInternalName, classVersion, fieldName, descriptor, storedValue.getInitInsns());
+                return List.of(new FieldInsnNode(
+                    GETSTATIC,
+                    holderInternalName,
+                    fieldName,
+                    descriptor
+                ));
+            }
+
+            var valueHash = sha512().hashString(value.toString(), UTF_8).toString();
+            if (options.getPropertyMapStorage() == LAZY && classVersion >= V11) {
+                var methodName = "$" + scope + "$" + valueHash;
+                if (!methodNames.contains(methodName)) {
+                    valueMethods.putIfAbsent(methodName, storedValue);
+                }
+
+                return List.of(new LdcInsnNode(new ConstantDynamic(
+                    methodName,
+                    descriptor,
+                    CONSTANT_BOOTSTRAPS_INVOKE,
+                    new Handle(H_INVOKESTATIC, className, methodName, "()" + descriptor, isInterface)
+                )));
+            }
+
+            if (!PUT_PROPERTY_MAPS_TO_FIELDS || isInterface) {
+                return storedValue.getInitInsns().get();
+            }
+
+            var fieldName = "$" + scope + "$" + valueHash;
+            if (!fieldNames.contains(fieldName)) {
+                valueFields.putIfAbsent(fieldName, storedValue);
+            }
+
+            return List.of(new FieldInsnNode(
+                GETSTATIC,
+                className,
+                fieldName,
+                descriptor
+            ));
+        }
+
+        private List<AbstractInsnNode> createMapInsns(Map<?, ?> values) {
+            var compact = options.getPropertyMapImplementation() == COMPACT
+                && classVersion >= V9;
+            return ClassFileProcessor.createMapInsns(values, compact);
+        }
+
+        private List<AbstractInsnNode> createListInsns(List<String> values) {
+            return ClassFileProcessor.createListInsns(values, classVersion >= V9);
+        }
+
+        /**
+         * Creates instructions that push the string. Strings that don't fit into the constant pool are read from
+         * resources.
+         */
+        private List<AbstractInsnNode> createStringConstantInsns(String value) {
+            if (getModifiedUtf8Length(value) > MAX_CONSTANT_UTF8_LENGTH) {
+                return createResourceValueInsns(ResourceValueType.STRING, value.getBytes(UTF_8));
+            }
+
+            return createConstantInsns(value);
+        }
+
+        /**
+         * Creates instructions that push the value read from a resource.
+         *
+         * <p>The resource is read by a synthetic method. For Java 11 class files, the method bootstraps a dynamic
+         * constant. For older class files, the value is cached in a synthetic volatile field. Interfaces can't have
+         * such fields, so older interfaces read the resource on every invocation.
+         */
+        private List<AbstractInsnNode> createResourceValueInsns(ResourceValueType type, byte[] content) {
+            cacheable = false;
+            var resourceName = propertyResources.add(content);
+            List<AbstractInsnNode> result = new ArrayList<>();
+            if (isInterface && classVersion < V11) {
+                result.addAll(createResourceLoadingInsns(resourceName, content.length, type));
+
+            } else {
+                var methodName = "$" + type.name() + "$" + substringAfterLast(resourceName, "/");
+                var methodDescriptor = "()" + type.getDescriptor();
+                if (!methodNames.contains(methodName)) {
+                    resourceValueMethods.putIfAbsent(methodName, new ResourceValueMethod(
+                        type,
+                        createResourceLoadingInsns(resourceName, content.length, type)
+                    ));
+                }
+
+                if (classVersion >= V11) {
+                    result.add(new LdcInsnNode(new ConstantDynamic(
+                        methodName,
+                        type.getDescriptor(),
+                        CONSTANT_BOOTSTRAPS_INVOKE,
+                        new Handle(H_INVOKESTATIC, className, methodName, methodDescriptor, isInterface)
+                    )));
+                } else {
+                    result.add(new MethodInsnNode(INVOKESTATIC, className, methodName, methodDescriptor, isInterface));
+                }
+            }
+
+            if (type == ResourceValueType.BYTE_BUFFER) {
+                // the position and the limit of the shared buffer must not be changed by callers
+                result.add(new MethodInsnNode(
+                    INVOKEVIRTUAL,
+                    "java/nio/ByteBuffer",
+                    "duplicate",
+                    "()Ljava/nio/ByteBuffer;"
+                ));
+            }
+
+            return result;
+        }
+
+        /**
+         * Creates instructions that read the resource and push the value.
+         *
+         * <p>The resource is read by {@link #addResourceReadingMethod()} method, which closes the stream even if
+         * reading fails. Interfaces of class files older than Java 8 can't have static methods, so they read the
+         * resource directly. It can happen only in their static initializers, so the stream of a failed read is
+         * not leaked repeatedly.
+         */
+        private List<AbstractInsnNode> createResourceLoadingInsns(
+            String resourceName,
+            int length,
+            ResourceValueType type
+        ) {
+            List<AbstractInsnNode> result = new ArrayList<>();
+            if (isInterface && classVersion < V1_8) {
+                result.addAll(createInlineResourceReadingInsns(className, resourceName, length));
+            } else {
+                resourceReadingMethodRequired = true;
+                result.add(new LdcInsnNode("/" + resourceName));
+                result.add(createConstantInsn(length));
+                result.add(new MethodInsnNode(
+                    INVOKESTATIC,
+                    className,
+                    RESOURCE_READING_METHOD_NAME,
+                    RESOURCE_READING_METHOD_DESCRIPTOR,
+                    isInterface
+                ));
+            }
+            result.addAll(createResourceValueConversionInsns(type));
+            return result;
+        }
+
+        /**
+         * Adds a method that works like this code:
+         *
+         * <pre>{@code
+         * private static byte[] $readBuildTimeConstantsResource(String name, int length) throws IOException {
+         *     try (var in = requireNonNull(CurrentClass.class.getResourceAsStream(name), "...")) {
+         *         var bytes = new byte[length];
+         *         new DataInputStream(in).readFully(bytes);
+         *         return bytes;
+         *     }
+         * }
+         * }</pre>
+         *
+         * <p>Static interface methods of Java 8 class files can't be private, so they are public.
+         */
+        private void addResourceReadingMethod() {
+            var access = isInterface && classVersion < V9 ? ACC_PUBLIC : ACC_PRIVATE;
+            var methodVisitor = super.visitMethod(
+                access | ACC_STATIC | ACC_SYNTHETIC,
+                RESOURCE_READING_METHOD_NAME,
+                RESOURCE_READING_METHOD_DESCRIPTOR,
+                null,
+                null
+            );
+            methodVisitor.visitCode();
+            methodVisitor.visitLdcInsn(Type.getObjectType(className));
+            methodVisitor.visitVarInsn(ALOAD, 0);
+            methodVisitor.visitMethodInsn(
+                INVOKEVIRTUAL,
+                "java/lang/Class",
+                "getResourceAsStream",
+                "(Ljava/lang/String;)Ljava/io/InputStream;",
+                false
+            );
+            methodVisitor.visitLdcInsn("Build-time constants resource not found: ");
+            methodVisitor.visitVarInsn(ALOAD, 0);
+            methodVisitor.visitMethodInsn(
+                INVOKEVIRTUAL,
+                "java/lang/String",
+                "concat",
+                "(Ljava/lang/String;)Ljava/lang/String;",
+                false
+            );
+            methodVisitor.visitMethodInsn(
+                INVOKESTATIC,
+                "java/util/Objects",
+                "requireNonNull",
+                "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+                false
+            );
+            methodVisitor.visitTypeInsn(CHECKCAST, "java/io/InputStream");
+            methodVisitor.visitVarInsn(ASTORE, 2);
+
+            var tryStartLabel = new Label();
+            var tryEndLabel = new Label();
+            var handlerLabel = new Label();
+            methodVisitor.visitTryCatchBlock(tryStartLabel, tryEndLabel, handlerLabel, null);
+            methodVisitor.visitLabel(tryStartLabel);
+            methodVisitor.visitVarInsn(ILOAD, 1);
+            methodVisitor.visitIntInsn(NEWARRAY, T_BYTE);
+            methodVisitor.visitVarInsn(ASTORE, 3);
+            methodVisitor.visitTypeInsn(NEW, "java/io/DataInputStream");
+            methodVisitor.visitInsn(DUP);
+            methodVisitor.visitVarInsn(ALOAD, 2);
+            methodVisitor.visitMethodInsn(
+                INVOKESPECIAL,
+                "java/io/DataInputStream",
+                "<init>",
+                "(Ljava/io/InputStream;)V",
+                false
+            );
+            methodVisitor.visitVarInsn(ALOAD, 3);
+            methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/io/DataInputStream", "readFully", "([B)V", false);
+            methodVisitor.visitLabel(tryEndLabel);
+            methodVisitor.visitVarInsn(ALOAD, 2);
+            methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/io/InputStream", "close", "()V", false);
+            methodVisitor.visitVarInsn(ALOAD, 3);
+            methodVisitor.visitInsn(ARETURN);
+
+            methodVisitor.visitLabel(handlerLabel);
+            if (classVersion >= V1_6) {
+                methodVisitor.visitFrame(
+                    F_FULL,
+                    3,
+                    new Object[]{"java/lang/String", INTEGER, "java/io/InputStream"},
+                    1,
+                    new Object[]{"java/lang/Throwable"}
+                );
+            }
+            methodVisitor.visitVarInsn(ASTORE, 3);
+            methodVisitor.visitVarInsn(ALOAD, 2);
+            methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/io/InputStream", "close", "()V", false);
+            methodVisitor.visitVarInsn(ALOAD, 3);
+            methodVisitor.visitInsn(ATHROW);
+            methodVisitor.visitMaxs(0, 0);
+            methodVisitor.visitEnd();
+        }
+
+        private void addResourceValueMethod(String methodName, ResourceValueMethod method) {
+            var descriptor = method.getType().getDescriptor();
+            var cacheInField = classVersion < V11;
+            if (cacheInField) {
+                super.visitField(
+                    ACC_PRIVATE | ACC_STATIC | ACC_VOLATILE | ACC_SYNTHETIC,
+                    methodName,
+                    descriptor,
+                    null,
+                    null
+                ).visitEnd();
+            }
+
+            var methodVisitor = super.visitMethod(
+                ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                methodName,
+                "()" + descriptor,
+                null,
+                null
+            );
+            methodVisitor.visitCode();
+            if (cacheInField) {
+                var cachedLabel = new Label();
+                methodVisitor.visitFieldInsn(GETSTATIC, className, methodName, descriptor);
+                methodVisitor.visitInsn(DUP);
+                methodVisitor.visitJumpInsn(IFNONNULL, cachedLabel);
+                methodVisitor.visitInsn(POP);
+                method.getLoadingInsns().forEach(insn -> insn.accept(methodVisitor));
+                methodVisitor.visitInsn(DUP);
+                methodVisitor.visitFieldInsn(PUTSTATIC, className, methodName, descriptor);
+                methodVisitor.visitLabel(cachedLabel);
+                if (classVersion >= V1_6) {
+                    methodVisitor.visitFrame(F_SAME1, 0, null, 1, new Object[]{method.getType().getInternalName()});
+                }
+            } else {
+                method.getLoadingInsns().forEach(insn -> insn.accept(methodVisitor));
+            }
+            methodVisitor.visitInsn(ARETURN);
+            methodVisitor.visitMaxs(0, 0);
+            methodVisitor.visitEnd();
+        }
+
     }
 
-    @SuppressWarnings({"java:S3776", "java:S6541", "java:S127"})
-    private void processInstructions(ClassNode classNode, MethodNode methodNode, InsnList instructions) {
-        for (
-            AbstractInsnNode insn = instructions.getLast();
-            insn != null;
-            insn = insn.getPrevious()
+    /**
+     * Substitutes invocations of {@code BuildTimeConstants} methods with constants.
+     *
+     * <p>{@code LDC} instructions are not passed to the delegate immediately. If the next instruction is an
+     * invocation that can be substituted, the invocation and its {@code LDC} parameters are replaced. Labels,
+     * line numbers, and frames between them are kept.
+     */
+    private class ProcessingMethodVisitor extends MethodVisitor {
+
+        private final ProcessingClassVisitor classVisitor;
+        private final String methodName;
+        private final String methodDescriptor;
+
+        /**
+         * Pending {@code LDC} instructions, with labels, line numbers, and frames after them.
+         */
+        private final List<AbstractInsnNode> pendingInsns = new ArrayList<>();
+
+        private int pendingLdcCount;
+
+        public ProcessingMethodVisitor(
+            MethodVisitor methodVisitor,
+            ProcessingClassVisitor classVisitor,
+            String methodName,
+            String methodDescriptor
         ) {
-            if (!(insn instanceof MethodInsnNode)) {
-                continue;
+            super(ASM9, methodVisitor);
+            this.classVisitor = classVisitor;
+            this.methodName = methodName;
+            this.methodDescriptor = methodDescriptor;
+        }
+
+        private void flushPending() {
+            flushPending(0);
+        }
+
+        /**
+         * Passes pending instructions to the delegate, keeping the last {@code keptLdcCount} {@code LDC}
+         * instructions pending.
+         */
+        private void flushPending(int keptLdcCount) {
+            while (!pendingInsns.isEmpty()
+                && (pendingLdcCount > keptLdcCount || !(pendingInsns.get(0) instanceof LdcInsnNode))
+            ) {
+                var insn = pendingInsns.remove(0);
+                if (insn instanceof LdcInsnNode) {
+                    --pendingLdcCount;
+                }
+                insn.accept(mv);
             }
+        }
 
-            var methodInsn = (MethodInsnNode) insn;
-            if (methodInsn.getOpcode() != INVOKESTATIC) {
-                continue;
+        @Override
+        public void visitLdcInsn(Object value) {
+            flushPending(MAX_PARAMETERS_COUNT - 1);
+            pendingInsns.add(new LdcInsnNode(value));
+            ++pendingLdcCount;
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            if (pendingLdcCount > 0) {
+                pendingInsns.add(new LabelNode(label));
+            } else {
+                super.visitLabel(label);
+            }
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            if (pendingLdcCount > 0) {
+                pendingInsns.add(new LineNumberNode(line, new LabelNode(start)));
+            } else {
+                super.visitLineNumber(line, start);
+            }
+        }
+
+        @Override
+        public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+            if (pendingLdcCount > 0) {
+                pendingInsns.add(new FrameNode(type, numLocal, local, numStack, stack));
+            } else {
+                super.visitFrame(type, numLocal, local, numStack, stack);
             }
+        }
 
-            if (!methodInsn.owner.equals(BUILD_TIME_CONSTANTS_INTERNAL_NAME)
-                && !methodInsn.owner.equals(LEGACY_BUILD_TIME_CONSTANTS_INTERNAL_NAME)
+        @Override
+        public void visitMethodInsn(
+            int opcode,
+            String owner,
+            String name,
+            String descriptor,
+            boolean isInterface
+        ) {
+            var parametersCount = Type.getArgumentTypes(descriptor).length;
+            if (0 < parametersCount
+                && parametersCount <= pendingLdcCount
+                && opcode == INVOKESTATIC
+                && BUILD_TIME_CONSTANTS_INTERNAL_NAMES.contains(owner)
             ) {
-                continue;
+                flushPending(parametersCount);
+                List<Object> ldcValues = new ArrayList<>();
+                pendingInsns.forEach(insn -> {
+                    if (insn instanceof LdcInsnNode) {
+                        ldcValues.add(((LdcInsnNode) insn).cst);
+                    }
+                });
+                var newInsns = createSubstitutionInsns(owner, name, descriptor, ldcValues);
+                if (!newInsns.isEmpty()) {
+                    pendingInsns.forEach(insn -> {
+                        if (!(insn instanceof LdcInsnNode)) {
+                            insn.accept(mv);
+                        }
+                    });
+                    pendingInsns.clear();
+                    pendingLdcCount = 0;
+                    newInsns.forEach(insn -> insn.accept(mv));
+                    changed = true;
+                    metrics.substituted(name);
+                    return;
+                }
             }
 
-            var ldcInsn = getPrevLdcInsn(methodInsn);
-            if (ldcInsn == null) {
-                continue;
+            flushPending();
+
+            if (owner.equals(BUILD_TIME_CONSTANTS_INTERNAL_NAME)) {
+                throw new BuildTimeConstantsException(format(
+                    "Invocation of %s.%s%s was not substituted in %s.%s%s."
+                        + " The most common reason is that not constants are used for method invocation.",
+                    owner,
+                    name,
+                    descriptor,
+                    classVisitor.className,
+                    methodName,
+                    descriptor
+                ));
             }
 
-            final List<AbstractInsnNode> newInsns;
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+
+        @SuppressWarnings("java:S1541")
+        private List<AbstractInsnNode> createSubstitutionInsns(
+            String owner,
+            String name,
+            String descriptor,
+            List<Object> ldcValues
+        ) {
+            var ldcValue = ldcValues.get(0);
             try {
-                switch (methodInsn.name) {
+                switch (name) {
                     case "getClassName":
-                        newInsns = createConstantInsns(
-                            ((Type) ldcInsn.cst).getInternalName().replace('/', '.')
+                        return createConstantInsns(
+                            ((Type) ldcValue).getInternalName().replace('/', '.')
                         );
-                        break;
                     case "getClassSimpleName":
-                        newInsns = createConstantInsns(
-                            substringAfterLast(((Type) ldcInsn.cst).getInternalName(), "/")
+                        return createConstantInsns(
+                            substringAfterLast(((Type) ldcValue).getInternalName(), "/")
                         );
-                        break;
                     case "getClassPackageName":
-                        newInsns = createConstantInsns(
-                            substringBeforeLast(((Type) ldcInsn.cst).getInternalName().replace('/', '.'), ".", "")
+                        return createConstantInsns(
+                            substringBeforeLast(((Type) ldcValue).getInternalName().replace('/', '.'), ".", "")
                         );
-                        break;
                     case "getClassInternalName":
-                        newInsns = createConstantInsns(
-                            ((Type) ldcInsn.cst).getInternalName()
+                        return createConstantInsns(
+                            ((Type) ldcValue).getInternalName()
                         );
-                        break;
                     case "getClassDescriptor":
-                        newInsns = createConstantInsns(
-                            ((Type) ldcInsn.cst).getDescriptor()
+                        return createConstantInsns(
+                            ((Type) ldcValue).getDescriptor()
                         );
-                        break;
                     case "getStringProperty":
-                        newInsns = createConstantInsns(
-                            getPropertyValue(ldcInsn.cst, String.class, String::valueOf)
+                        return classVisitor.createStringConstantInsns(
+                            getPropertyValue(ldcValue, String.class, String::valueOf)
                         );
-                        break;
                     case "getIntegerProperty":
-                        newInsns = createConstantInsns(
-                            getPropertyValue(ldcInsn.cst, int.class, Integer::parseInt)
+                        return createConstantInsns(
+                            getPropertyValue(ldcValue, int.class, Integer::parseInt)
                         );
-                        break;
                     case "getLongProperty":
-                        newInsns = createConstantInsns(
-                            getPropertyValue(ldcInsn.cst, long.class, Long::parseLong)
+                        return createConstantInsns(
+                            getPropertyValue(ldcValue, long.class, Long::parseLong)
                         );
-                        break;
                     case "getBooleanProperty":
-                        newInsns = createConstantInsns(
-                            getPropertyValue(ldcInsn.cst, boolean.class, Boolean::parseBoolean)
+                        return createConstantInsns(
+                            getPropertyValue(ldcValue, boolean.class, Boolean::parseBoolean)
+                        );
+                    case "getEnumProperty":
+                        return createEnumConstantInsns(
+                            (Type) ldcValues.get(0),
+                            getPropertyValue(ldcValues.get(1), String.class, String::valueOf)
+                        );
+                    case "getStringListProperty":
+                        return classVisitor.createConstantListInsns(
+                            name,
+                            ldcValue,
+                            getPropertyValues(ldcValue, String::valueOf)
+                        );
+                    case "getIntArrayProperty":
+                        return classVisitor.createConstantArrayInsns(
+                            name,
+                            ldcValue,
+                            getPropertyValues(ldcValue, Integer::parseInt),
+                            Type.getType(int[].class)
+                        );
+                    case "getLongArrayProperty":
+                        return classVisitor.createConstantArrayInsns(
+                            name,
+                            ldcValue,
+                            getPropertyValues(ldcValue, Long::parseLong),
+                            Type.getType(long[].class)
+                        );
+                    case "getLargeStringProperty":
+                        return classVisitor.createResourceValueInsns(
+                            ResourceValueType.STRING,
+                            getPropertyValue(ldcValue, String.class, String::valueOf).getBytes(UTF_8)
+                        );
+                    case "getBytesProperty":
+                        return classVisitor.createResourceValueInsns(
+                            ResourceValueType.BYTE_BUFFER,
+                            getPropertyValue(ldcValue, String.class, String::valueOf).getBytes(UTF_8)
                         );
-                        break;
                     case "getStringProperties":
-                        newInsns = createConstantMapInsns(
-                            classNode,
-                            methodInsn.name,
-                            ldcInsn.cst,
-                            getPropertiesByNamePattern(ldcInsn.cst, String.class, String::valueOf)
+                        return classVisitor.createConstantMapInsns(
+                            name,
+                            ldcValue,
+                            getPropertiesByNamePattern(ldcValue, String.class, String::valueOf)
                         );
-                        break;
                     case "getIntegerProperties":
-                        newInsns = createConstantMapInsns(
-                            classNode,
-                            methodInsn.name,
-                            ldcInsn.cst,
-                            getPropertiesByNamePattern(ldcInsn.cst, int.class, Integer::parseInt)
+                        return classVisitor.createConstantMapInsns(
+                            name,
+                            ldcValue,
+                            getPropertiesByNamePattern(ldcValue, int.class, Integer::parseInt)
                         );
-                        break;
                     case "getLongProperties":
-                        newInsns = createConstantMapInsns(
-                            classNode,
-                            methodInsn.name,
-                            ldcInsn.cst,
-                            getPropertiesByNamePattern(ldcInsn.cst, long.class, Long::parseLong)
+                        return classVisitor.createConstantMapInsns(
+                            name,
+                            ldcValue,
+                            getPropertiesByNamePattern(ldcValue, long.class, Long::parseLong)
                         );
-                        break;
                     case "getBooleanProperties":
-                        newInsns = createConstantMapInsns(
-                            classNode,
-                            methodInsn.name,
-                            ldcInsn.cst,
-                            getPropertiesByNamePattern(ldcInsn.cst, boolean.class, Boolean::parseBoolean)
+                        return classVisitor.createConstantMapInsns(
+                            name,
+                            ldcValue,
+                            getPropertiesByNamePattern(ldcValue, boolean.class, Boolean::parseBoolean)
                         );
-                        break;
                     default:
                         throw new UnsupportedOperationException(format(
                             "Unsupported method: %s.%s%s",
-                            methodInsn.owner,
-                            methodInsn.name,
-                            methodInsn.desc
+                            owner,
+                            name,
+                            descriptor
                         ));
                 }
 
             } catch (Throwable e) {
                 throw new BuildTimeConstantsException(format(
                     "Error processing %s.%s%s: problem with %s.%s%s method invocation and parameter `%s`.",
-                    classNode.name,
-                    methodNode.name,
-                    methodNode.desc,
-                    methodInsn.owner,
-                    methodInsn.name,
-                    methodInsn.desc,
-                    ldcInsn.cst
+                    classVisitor.className,
+                    methodName,
+                    methodDescriptor,
+                    owner,
+                    name,
+                    descriptor,
+                    ldcValues.size() == 1 ? ldcValue : ldcValues
                 ), e);
             }
-            if (newInsns.isEmpty()) {
-                continue;
-            }
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            flushPending();
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            flushPending();
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            flushPending();
+            super.visitVarInsn(opcode, varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            flushPending();
+            super.visitTypeInsn(opcode, type);
+        }
 
-            var newInsnList = new InsnList();
-            newInsns.forEach(newInsnList::add);
-            instructions.insert(methodInsn, newInsnList);
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            flushPending();
+            super.visitFieldInsn(opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(
+            String name,
+            String descriptor,
+            Handle bootstrapMethodHandle,
+            Object... bootstrapMethodArguments
+        ) {
+            flushPending();
+            super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            flushPending();
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            flushPending();
+            super.visitIincInsn(varIndex, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            flushPending();
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            flushPending();
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            flushPending();
+            super.visitMultiANewArrayInsn(descriptor, numDimensions);
+        }
+
+        @Nullable
+        @Override
+        public AnnotationVisitor visitInsnAnnotation(
+            int typeRef,
+            @Nullable TypePath typePath,
+            String descriptor,
+            boolean visible
+        ) {
+            flushPending();
+            return super.visitInsnAnnotation(typeRef, typePath, descriptor, visible);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, @Nullable String type) {
+            flushPending();
+            super.visitTryCatchBlock(start, end, handler, type);
+        }
 
-            instructions.remove(methodInsn);
-            instructions.remove(ldcInsn);
-            insn = newInsns.get(0);
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            flushPending();
+            super.visitMaxs(maxStack, maxLocals);
+        }
 
-            changed = true;
+        @Override
+        public void visitEnd() {
+            flushPending();
+            super.visitEnd();
         }
+
     }
 
-    @Nullable
-    private static LdcInsnNode getPrevLdcInsn(@Nullable AbstractInsnNode insn) {
-        while (insn != null) {
-            insn = insn.getPrevious();
+    private enum ResourceValueType {
+        STRING,
+        BYTE_BUFFER,
+        ;
 
-            if (insn instanceof LdcInsnNode) {
-                return (LdcInsnNode) insn;
-            }
+        public String getInternalName() {
+            return this == STRING ? "java/lang/String" : "java/nio/ByteBuffer";
+        }
 
-            if (insn instanceof LineNumberNode
-                || insn instanceof LabelNode
-            ) {
-                continue;
-            }
+        public String getDescriptor() {
+            return "L" + getInternalName() + ";";
+        }
+    }
 
-            break;
+    @Value
+    private static class ResourceValueMethod {
+        ResourceValueType type;
+        List<AbstractInsnNode> loadingInsns;
+    }
+
+    /**
+     * A map, a list, or an array that is created once.
+     */
+    @Value
+    private static class StoredValue {
+        String descriptor;
+        Supplier<List<AbstractInsnNode>> initInsns;
+    }
+
+    /**
+     * Creates instructions that read the resource with a class literal of the processed class, so the resource is
+     * found by the class loader of the class. The instructions push a byte array.
+     *
+     * <p>The length of the resource is known at build time, so a loop is not needed to read it.
+     */
+    private static List<AbstractInsnNode> createInlineResourceReadingInsns(
+        String classInternalName,
+        String resourceName,
+        int length
+    ) {
+        var result = new ArrayList<AbstractInsnNode>();
+        result.add(new TypeInsnNode(NEW, "java/io/DataInputStream"));
+        result.add(new InsnNode(DUP));
+        result.add(new LdcInsnNode(Type.getObjectType(classInternalName)));
+        result.add(new LdcInsnNode("/" + resourceName));
+        result.add(new MethodInsnNode(
+            INVOKEVIRTUAL,
+            "java/lang/Class",
+            "getResourceAsStream",
+            "(Ljava/lang/String;)Ljava/io/InputStream;"
+        ));
+        result.add(new LdcInsnNode("Build-time constants resource not found: /" + resourceName));
+        result.add(new MethodInsnNode(
+            INVOKESTATIC,
+            "java/util/Objects",
+            "requireNonNull",
+            "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;"
+        ));
+        result.add(new TypeInsnNode(CHECKCAST, "java/io/InputStream"));
+        result.add(new MethodInsnNode(
+            INVOKESPECIAL,
+            "java/io/DataInputStream",
+            "<init>",
+            "(Ljava/io/InputStream;)V"
+        ));
+        result.add(new InsnNode(DUP));
+        result.add(createConstantInsn(length));
+        result.add(new IntInsnNode(NEWARRAY, T_BYTE));
+        result.add(new InsnNode(DUP_X2));
+        result.add(new MethodInsnNode(
+            INVOKEVIRTUAL,
+            "java/io/DataInputStream",
+            "readFully",
+            "([B)V"
+        ));
+        result.add(new MethodInsnNode(
+            INVOKEVIRTUAL,
+            "java/io/DataInputStream",
+            "close",
+            "()V"
+        ));
+        return result;
+    }
+
+    /**
+     * Creates instructions that convert the byte array on the stack to the value.
+     */
+    private static List<AbstractInsnNode> createResourceValueConversionInsns(ResourceValueType type) {
+        var result = new ArrayList<AbstractInsnNode>();
+        if (type == ResourceValueType.STRING) {
+            result.add(new TypeInsnNode(NEW, "java/lang/String"));
+            result.add(new InsnNode(DUP_X1));
+            result.add(new InsnNode(SWAP));
+            result.add(new FieldInsnNode(
+                GETSTATIC,
+                "java/nio/charset/StandardCharsets",
+                "UTF_8",
+                "Ljava/nio/charset/Charset;"
+            ));
+            result.add(new MethodInsnNode(
+                INVOKESPECIAL,
+                "java/lang/String",
+                "<init>",
+                "([BLjava/nio/charset/Charset;)V"
+            ));
+
+        } else {
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/nio/ByteBuffer",
+                "wrap",
+                "([B)Ljava/nio/ByteBuffer;"
+            ));
+            result.add(new MethodInsnNode(
+                INVOKEVIRTUAL,
+                "java/nio/ByteBuffer",
+                "asReadOnlyBuffer",
+                "()Ljava/nio/ByteBuffer;"
+            ));
         }
-        return null;
+
+        return result;
     }
 
     private static List<AbstractInsnNode> createConstantInsns(Object value) {
         return List.of(createConstantInsn(value));
     }
 
+    /**
+     * Creates instructions that read the enum constant. The constant name is validated using the class file of
+     * the enum, without loading the enum class.
+     */
+    private List<AbstractInsnNode> createEnumConstantInsns(Type enumType, String constantName) {
+        cacheable = false;
+        var enumConstants = classHierarchyResolver.getEnumConstants(enumType.getInternalName());
+        if (enumConstants == null) {
+            throw new IllegalArgumentException(format(
+                "%s is not an enum",
+                enumType.getClassName()
+            ));
+        }
+        if (!enumConstants.contains(constantName)) {
+            throw new IllegalArgumentException(format(
+                "%s enum doesn't have `%s` constant. Available constants: %s",
+                enumType.getClassName(),
+                constantName,
+                String.join(", ", enumConstants)
+            ));
+        }
+
+        return List.of(new FieldInsnNode(
+            GETSTATIC,
+            enumType.getInternalName(),
+            constantName,
+            enumType.getDescriptor()
+        ));
+    }
+
     @SuppressWarnings("java:S5411")
     private static List<AbstractInsnNode> createBoxedConstantInsns(Object value) {
         if (value instanceof Boolean) {
@@ -422,131 +1557,18 @@ class ClassFileProcessor {
     }
 
     @SuppressWarnings({"java:S3776", "java:S5411"})
-    private static AbstractInsnNode createConstantInsn(Object value) {
-        if (value instanceof Boolean) {
-            var boolValue = (Boolean) value;
-            return new InsnNode(boolValue ? ICONST_1 : ICONST_0);
-        }
-
-        if (value instanceof Integer) {
-            int intValue = (Integer) value;
-            if (-1 <= intValue && intValue <= 5) {
-                return new InsnNode(ICONST_0 + intValue);
-            }
-            if (-128 <= intValue && intValue <= 127) {
-                return new IntInsnNode(BIPUSH, intValue);
-            }
-            if (-32768 <= intValue && intValue <= 32767) {
-                return new IntInsnNode(SIPUSH, intValue);
-            }
-        }
-
-        if (value instanceof Long) {
-            long longValue = (Long) value;
-            if (0 <= longValue && longValue <= 1) {
-                return new InsnNode(LCONST_0 + (int) longValue);
-            }
-        }
-
-        return new LdcInsnNode(value);
-    }
-
     private <T> T getPropertyValue(Object propertyName, Class<T> type, Function<String, T> converter) {
-        String stringValue = properties.get(propertyName.toString());
-        if (stringValue == null) {
-            throw new IllegalStateException(format(
-                "Property '%s' is not set",
-                propertyName
-            ));
-        }
-
-        try {
-            return converter.apply(stringValue);
-        } catch (Exception e) {
-            throw new IllegalStateException(format(
-                "Property '%s' is not %s",
-                propertyName,
-                type.getSimpleName()
-            ));
-        }
-    }
-
-    private static List<AbstractInsnNode> createConstantMapInsns(
-        ClassNode classNode,
-        String scope,
-        Object value,
-        Map<?, ?> values
-    ) {
-        if (!PUT_PROPERTY_MAPS_TO_FIELDS
-            || (classNode.access & ACC_INTERFACE) != 0
-        ) {
-            return createMapInsns(values);
-        }
-
-        var valueHash = sha512().hashString(value.toString(), UTF_8).toString();
-        var fieldName = "$" + scope + "$" + valueHash;
-        FieldNode field = classNode.fields.stream()
-            .filter(it -> it.name.equals(fieldName))
-            .findAny()
-            .orElse(null);
-
-        if (field == null) {
-            field = new FieldNode(
-                ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC,
-                fieldName,
-                "Ljava/util/Map;",
-                null,
-                null
-            );
-            classNode.fields.add(field);
-
-            MethodNode staticInitMethod = classNode.methods.stream()
-                .filter(it -> it.name.equals("<clinit>") && it.desc.equals("()V"))
-                .findAny()
-                .orElse(null);
-            if (staticInitMethod == null) {
-                staticInitMethod = new MethodNode(
-                    ACC_STATIC,
-                    "<clinit>",
-                    "()V",
-                    null,
-                    null
-                );
-                classNode.methods.add(staticInitMethod);
-            }
-
-            InsnList instructions = staticInitMethod.instructions;
-            if (instructions.size() == 0) {
-                instructions.add(new LabelNode());
-                instructions.add(new InsnNode(RETURN));
-            }
-
-            var insnsToAdd = new InsnList();
-            createMapInsns(values).forEach(insnsToAdd::add);
-            insnsToAdd.add(new FieldInsnNode(
-                PUTSTATIC,
-                classNode.name,
-                field.name,
-                field.desc
-            ));
-
-            var prevInsn = getFirstLabelNode(instructions);
-            if (prevInsn == null) {
-                instructions.insert(insnsToAdd);
-            } else {
-                instructions.insert(prevInsn, insnsToAdd);
-            }
-        }
-
-        return List.of(new FieldInsnNode(
-            GETSTATIC,
-            classNode.name,
-            field.name,
-            field.desc
-        ));
+        usedPropertyNames.add(propertyName.toString());
+        return properties.getValue(propertyName.toString(), type, converter);
     }
 
-    private static List<AbstractInsnNode> createMapInsns(Map<?, ?> values) {
+    /**
+     * Creates instructions that create an unmodifiable map.
+     *
+     * @param compact if {@code true}, {@code Map.of()} or {@code Map.ofEntries()} is used, so the order of
+     *     entries is not kept. Supported since Java 9.
+     */
+    private static List<AbstractInsnNode> createMapInsns(Map<?, ?> values, boolean compact) {
         if (values.isEmpty()) {
             return List.of(
                 new MethodInsnNode(
@@ -570,6 +1592,49 @@ class ClassFileProcessor {
             ));
             return result;
 
+        } else if (compact && values.size() <= MAP_OF_MAX_ENTRIES) {
+            var result = new ArrayList<AbstractInsnNode>();
+            values.forEach((key, value) -> {
+                result.add(createConstantInsn(key));
+                result.addAll(createBoxedConstantInsns(value));
+            });
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/util/Map",
+                "of",
+                "(" + "Ljava/lang/Object;".repeat(values.size() * 2) + ")Ljava/util/Map;",
+                true
+            ));
+            return result;
+
+        } else if (compact) {
+            var result = new ArrayList<AbstractInsnNode>();
+            result.add(createConstantInsn(values.size()));
+            result.add(new TypeInsnNode(ANEWARRAY, "java/util/Map$Entry"));
+            var index = 0;
+            for (var entry : values.entrySet()) {
+                result.add(new InsnNode(DUP));
+                result.add(createConstantInsn(index++));
+                result.add(createConstantInsn(entry.getKey()));
+                result.addAll(createBoxedConstantInsns(entry.getValue()));
+                result.add(new MethodInsnNode(
+                    INVOKESTATIC,
+                    "java/util/Map",
+                    "entry",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/util/Map$Entry;",
+                    true
+                ));
+                result.add(new InsnNode(AASTORE));
+            }
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/util/Map",
+                "ofEntries",
+                "([Ljava/util/Map$Entry;)Ljava/util/Map;",
+                true
+            ));
+            return result;
+
         } else {
             var result = new ArrayList<AbstractInsnNode>();
             result.add(new TypeInsnNode(NEW, "java/util/LinkedHashMap"));
@@ -598,24 +1663,130 @@ class ClassFileProcessor {
         }
     }
 
+    /**
+     * Creates instructions that create an unmodifiable list.
+     *
+     * @param listOf if {@code true}, {@code List.of()} is used. Supported since Java 9.
+     */
+    private static List<AbstractInsnNode> createListInsns(List<String> values, boolean listOf) {
+        if (values.isEmpty()) {
+            return List.of(
+                new MethodInsnNode(
+                    INVOKESTATIC,
+                    "java/util/Collections",
+                    "emptyList",
+                    "()Ljava/util/List;"
+                )
+            );
+
+        } else if (values.size() == 1) {
+            return List.of(
+                createConstantInsn(values.get(0)),
+                new MethodInsnNode(
+                    INVOKESTATIC,
+                    "java/util/Collections",
+                    "singletonList",
+                    "(Ljava/lang/Object;)Ljava/util/List;"
+                )
+            );
+        }
+
+        var result = new ArrayList<AbstractInsnNode>();
+        result.add(createConstantInsn(values.size()));
+        result.add(new TypeInsnNode(ANEWARRAY, "java/lang/String"));
+        for (int index = 0; index < values.size(); ++index) {
+            result.add(new InsnNode(DUP));
+            result.add(createConstantInsn(index));
+            result.add(createConstantInsn(values.get(index)));
+            result.add(new InsnNode(AASTORE));
+        }
+        if (listOf) {
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/util/List",
+                "of",
+                "([Ljava/lang/Object;)Ljava/util/List;",
+                true
+            ));
+        } else {
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/util/Arrays",
+                "asList",
+                "([Ljava/lang/Object;)Ljava/util/List;"
+            ));
+            result.add(new MethodInsnNode(
+                INVOKESTATIC,
+                "java/util/Collections",
+                "unmodifiableList",
+                "(Ljava/util/List;)Ljava/util/List;"
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Creates instructions that create an {@code int[]} or a {@code long[]} array.
+     */
+    private static List<AbstractInsnNode> createArrayInsns(List<? extends Number> values, Type arrayType) {
+        var isLong = arrayType.getElementType().getSort() == Type.LONG;
+        var result = new ArrayList<AbstractInsnNode>();
+        result.add(createConstantInsn(values.size()));
+        result.add(new IntInsnNode(NEWARRAY, isLong ? T_LONG : T_INT));
+        for (int index = 0; index < values.size(); ++index) {
+            var value = values.get(index);
+            if (value.longValue() == 0) {
+                // new arrays are filled with zeros
+                continue;
+            }
+            result.add(new InsnNode(DUP));
+            result.add(createConstantInsn(index));
+            result.add(createConstantInsn(value));
+            result.add(new InsnNode(isLong ? LASTORE : IASTORE));
+        }
+        return result;
+    }
+
+    /**
+     * Splits the property value by commas. Elements are trimmed. An empty value is an empty list.
+     */
+    private <T> List<T> getPropertyValues(Object propertyName, Function<String, T> converter) {
+        var value = getPropertyValue(propertyName, String.class, String::valueOf);
+        if (value.isBlank()) {
+            return List.of();
+        }
+
+        List<T> result = new ArrayList<>();
+        for (var element : value.split(",", -1)) {
+            result.add(converter.apply(element.trim()));
+        }
+        return result;
+    }
+
     private <T> Map<String, T> getPropertiesByNamePattern(
         Object propertyNamePattern,
         Class<T> type,
         Function<String, T> converter
     ) {
-        Map<String, T> result = new LinkedHashMap<>();
+        usedPropertyNamePatterns.add(propertyNamePattern.toString());
+        return properties.getValuesByPattern(propertyNamePattern.toString(), type, converter);
+    }
 
-        var pattern = Pattern.compile(
-            escapeRegex(propertyNamePattern.toString())
-                .replace("\\*", ".*")
-        );
-        properties.forEach((key, stringValue) -> {
-            if (pattern.matcher(key).matches()) {
-                result.put(key, getPropertyValue(key, type, converter));
+    private static boolean isFollowedByFrame(AbstractInsnNode insn) {
+        for (var next = insn.getNext(); next != null; next = next.getNext()) {
+            if (next instanceof FrameNode) {
+                return true;
             }
-        });
 
-        return result;
+            if (next instanceof LineNumberNode
+                || next instanceof LabelNode
+            ) {
+                continue;
+            }
+
+            break;
+        }
+        return false;
     }
 
     @Nullable
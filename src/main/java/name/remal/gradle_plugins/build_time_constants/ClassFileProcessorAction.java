@@ -1,31 +1,68 @@
 package name.remal.gradle_plugins.build_time_constants;
 
-import static java.nio.file.Files.isDirectory;
+import static name.remal.gradle_plugins.build_time_constants.ClassFileProcessorUtils.processClassFiles;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.SHARED_HOLDER;
 import static name.remal.gradle_plugins.toolkit.JvmLanguageCompilationUtils.getJvmLanguagesCompileTaskProperties;
-import static name.remal.gradle_plugins.toolkit.SneakyThrowUtils.sneakyThrowsFunction;
 
-import java.io.File;
-import java.net.URI;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import javax.inject.Inject;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.gradle.api.Action;
 import org.gradle.api.Describable;
 import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
 
 @RequiredArgsConstructor
 abstract class ClassFileProcessorAction implements Action<Task>, Describable {
 
     public abstract MapProperty<String, String> getProperties();
 
+    public abstract Property<Integer> getParallelism();
+
+    public abstract Property<ProcessingPoolService> getProcessingPool();
+
+    public abstract Property<ClasspathCacheService> getClasspathCache();
+
+    public abstract Property<RewrittenClassesCacheService> getRewrittenClassesCache();
+
+    public abstract Property<PropertyMapImplementation> getPropertyMapImplementation();
+
+    public abstract Property<PropertyMapStorage> getPropertyMapStorage();
+
+    /**
+     * Identifies class files processed by the task, see {@link SharedPropertyMaps#SharedPropertyMaps(String)}.
+     * The task path is used by default.
+     */
+    public abstract Property<String> getSharedPropertyMapsOutputName();
+
+    public abstract Property<Boolean> getFoldConstantConditions();
+
+    public abstract Property<Boolean> getFoldPureMethodCalls();
+
+    /**
+     * If set, {@link ProcessingMetrics} are written to this file in JSON format.
+     */
+    public abstract RegularFileProperty getMetricsReportFile();
+
+    /**
+     * {@code false} if class files of the task are processed by {@link InlineBuildTimeConstants} task instead.
+     */
+    public abstract Property<Boolean> getEnabled();
+
     @Override
     @SneakyThrows
     public void execute(Task task) {
+        if (!getEnabled().getOrElse(true)) {
+            return;
+        }
+
         var compileProperties = getJvmLanguagesCompileTaskProperties(task);
         if (compileProperties == null) {
             return;
@@ -39,28 +76,68 @@ abstract class ClassFileProcessorAction implements Action<Task>, Describable {
         var classpath = getObjects().fileCollection().from(destinationDir).plus(
             compileProperties.getClasspath()
         );
-        var classpathUrls = classpath.getFiles().stream()
-            .map(File::toPath)
-            .filter(Files::exists)
-            .map(path -> {
-                if (isDirectory(path)) {
-                    return path.toUri();
-                } else {
-                    return URI.create("jar:" + path.toUri() + "!/");
-                }
-            })
-            .map(sneakyThrowsFunction(URI::toURL))
-            .toArray(URL[]::new);
-        try (var classLoader = new URLClassLoader(classpathUrls, null)) {
+        var metrics = new ProcessingMetrics();
+        var snapshot = ClassFilesSnapshot.readAndDelete(ClassFilesSnapshotAction.getSnapshotPath(task));
+        try (var classHierarchyResolver = ClassHierarchyResolver.forClasspath(
+            classpath.getFiles(),
+            getClasspathCache().getOrNull()
+        )) {
+            List<Path> classFilePaths = new ArrayList<>();
             var fileTree = getObjects().fileTree().from(destinationDir);
             fileTree.include("**/*.class");
             fileTree.visit(details -> {
-                if (!details.isDirectory()) {
-                    var path = details.getFile().toPath();
-                    var processor = new ClassFileProcessor(path, path, getProperties().get(), classLoader);
-                    processor.process();
+                if (details.isDirectory()) {
+                    return;
                 }
+
+                if (snapshot != null && !snapshot.isChanged(details)) {
+                    // not written by the current compilation, so already processed by the previous one
+                    return;
+                }
+
+                metrics.fileVisited();
+                classFilePaths.add(details.getFile().toPath());
             });
+
+            var properties = new CompiledProperties(getProperties().get());
+            var options = new ClassFileProcessingOptions(
+                getPropertyMapImplementation().get(),
+                getPropertyMapStorage().get(),
+                getFoldConstantConditions().get(),
+                getFoldPureMethodCalls().get()
+            );
+            var propertyResources = new PropertyResources();
+            var sharedPropertyMaps = getPropertyMapStorage().get() == SHARED_HOLDER
+                ? new SharedPropertyMaps(getSharedPropertyMapsOutputName().getOrElse(task.getPath()))
+                : null;
+            var rewrittenClassesCache = Optional.ofNullable(getRewrittenClassesCache().getOrNull())
+                .map(RewrittenClassesCacheService::getCache)
+                .orElse(null);
+            var processingPool = Optional.ofNullable(getProcessingPool().getOrNull())
+                .map(ProcessingPoolService::getPool)
+                .orElse(null);
+            processClassFiles(classFilePaths, getParallelism().getOrElse(1), processingPool, path -> {
+                var processor = new ClassFileProcessor(
+                    properties,
+                    classHierarchyResolver,
+                    metrics,
+                    options,
+                    propertyResources,
+                    sharedPropertyMaps,
+                    rewrittenClassesCache
+                );
+                processor.process(path, path);
+            });
+
+            propertyResources.writeTo(destinationDir.toPath(), metrics);
+            if (sharedPropertyMaps != null) {
+                sharedPropertyMaps.writeTo(destinationDir.toPath(), metrics);
+            }
+        }
+
+        var metricsReportFile = getMetricsReportFile().getAsFile().getOrNull();
+        if (metricsReportFile != null) {
+            metrics.writeJsonReport(metricsReportFile.toPath(), task.getPath());
         }
     }
 
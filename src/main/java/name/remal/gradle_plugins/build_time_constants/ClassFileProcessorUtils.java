@@ -0,0 +1,79 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.lang.Math.min;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+import org.gradle.api.Action;
+import org.jspecify.annotations.Nullable;
+
+@NoArgsConstructor(access = PRIVATE)
+abstract class ClassFileProcessorUtils {
+
+    /**
+     * Processes class files using up to {@code parallelism} threads of the pool. If the pool is not passed,
+     * class files are processed in the current thread.
+     *
+     * <p>The pool is shared between tasks (see {@link ProcessingPoolService}), so {@code parallelism} tasks are
+     * submitted to it, and every submitted task takes the next not processed file until all files are processed.
+     *
+     * <p>All files are processed even if some of them fail. The failure of the first file (in path order)
+     * is rethrown, with failures of other files added as suppressed exceptions. So, the reported error
+     * doesn't depend on thread scheduling.
+     */
+    @SneakyThrows
+    public static void processClassFiles(
+        List<Path> classFilePaths,
+        int parallelism,
+        @Nullable ExecutorService pool,
+        Action<Path> processor
+    ) {
+        Map<Path, Throwable> failures = new ConcurrentSkipListMap<>();
+        Action<Path> safeProcessor = path -> {
+            try {
+                processor.execute(path);
+            } catch (Throwable e) {
+                failures.put(path, e);
+            }
+        };
+
+        parallelism = min(parallelism, classFilePaths.size());
+        if (parallelism <= 1 || pool == null) {
+            classFilePaths.forEach(safeProcessor::execute);
+
+        } else {
+            var nextIndex = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; ++i) {
+                futures.add(pool.submit(() -> {
+                    for (var index = nextIndex.getAndIncrement();
+                         index < classFilePaths.size();
+                         index = nextIndex.getAndIncrement()
+                    ) {
+                        safeProcessor.execute(classFilePaths.get(index));
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            var iterator = failures.values().iterator();
+            var exception = iterator.next();
+            iterator.forEachRemaining(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Sizes and modification times of class files in a directory, taken before a compilation task is executed.
+ *
+ * <p>Class files that are not changed by the compilation have already been processed by the previous execution,
+ * so they can be skipped.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+class ClassFilesSnapshot {
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * A file modified this close to the snapshot time can be rewritten with the same size and the same
+     * modification time (file systems with coarse timestamps), so such files are not recorded.
+     */
+    private static final long RACY_MODIFICATION_INTERVAL_MILLIS = 2_000;
+
+
+    private final Map<String, FileState> files;
+
+    public static ClassFilesSnapshot take(FileTree classFiles) {
+        var racyModificationTime = System.currentTimeMillis() - RACY_MODIFICATION_INTERVAL_MILLIS;
+        Map<String, FileState> files = new LinkedHashMap<>();
+        classFiles.visit(details -> {
+            if (details.isDirectory()) {
+                return;
+            }
+
+            var state = FileState.of(details);
+            if (state.getLastModified() >= racyModificationTime) {
+                return;
+            }
+
+            files.put(details.getRelativePath().getPathString(), state);
+        });
+        return new ClassFilesSnapshot(files);
+    }
+
+    public boolean isChanged(FileVisitDetails details) {
+        var state = files.get(details.getRelativePath().getPathString());
+        return state == null || !state.equals(FileState.of(details));
+    }
+
+
+    @SneakyThrows
+    public void writeTo(Path path) {
+        var dirPath = path.getParent();
+        if (dirPath != null) {
+            createDirectories(dirPath);
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(newOutputStream(path)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(files.size());
+            for (var entry : files.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().getSize());
+                out.writeLong(entry.getValue().getLastModified());
+            }
+        }
+    }
+
+    /**
+     * Reads and deletes a snapshot, so the snapshot is used only once.
+     */
+    @Nullable
+    @SneakyThrows
+    public static ClassFilesSnapshot readAndDelete(Path path) {
+        if (!exists(path)) {
+            return null;
+        }
+
+        try {
+            try (var in = new DataInputStream(new BufferedInputStream(newInputStream(path)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    return null;
+                }
+
+                var count = in.readInt();
+                Map<String, FileState> files = new LinkedHashMap<>();
+                for (int i = 0; i < count; ++i) {
+                    var relativePath = in.readUTF();
+                    var size = in.readLong();
+                    var lastModified = in.readLong();
+                    files.put(relativePath, new FileState(size, lastModified));
+                }
+                return new ClassFilesSnapshot(files);
+            }
+
+        } finally {
+            deleteIfExists(path);
+        }
+    }
+
+
+    @Value
+    private static class FileState {
+
+        public static FileState of(FileVisitDetails details) {
+            return new FileState(details.getSize(), details.getLastModified());
+        }
+
+        long size;
+        long lastModified;
+
+    }
+
+}
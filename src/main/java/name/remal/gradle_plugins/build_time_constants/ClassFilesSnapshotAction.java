@@ -0,0 +1,61 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.toolkit.JvmLanguageCompilationUtils.getJvmLanguagesCompileTaskProperties;
+
+import java.io.File;
+import java.nio.file.Path;
+import javax.inject.Inject;
+import org.gradle.api.Action;
+import org.gradle.api.Describable;
+import org.gradle.api.Task;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+/**
+ * Takes {@link ClassFilesSnapshot} of the destination directory before a compilation task is executed.
+ * The snapshot is used by {@link ClassFileProcessorAction} to process only class files written by the compilation.
+ */
+abstract class ClassFilesSnapshotAction implements Action<Task>, Describable {
+
+    private static final String SNAPSHOT_FILE_NAME = "build-time-constants-class-files.snapshot";
+
+    public static Path getSnapshotPath(Task task) {
+        return new File(task.getTemporaryDir(), SNAPSHOT_FILE_NAME).toPath();
+    }
+
+    /**
+     * {@code false} if class files of the task are processed by {@link InlineBuildTimeConstants} task instead.
+     */
+    public abstract Property<Boolean> getEnabled();
+
+    @Override
+    public void execute(Task task) {
+        if (!getEnabled().getOrElse(true)) {
+            return;
+        }
+
+        var compileProperties = getJvmLanguagesCompileTaskProperties(task);
+        if (compileProperties == null) {
+            return;
+        }
+
+        var destinationDir = compileProperties.getDestinationDirectory().getAsFile().getOrNull();
+        if (destinationDir == null) {
+            return;
+        }
+
+        var fileTree = getObjects().fileTree().from(destinationDir);
+        fileTree.include("**/*.class");
+        ClassFilesSnapshot.take(fileTree).writeTo(getSnapshotPath(task));
+    }
+
+    @Override
+    public String getDisplayName() {
+        return ClassFilesSnapshotAction.class.getName();
+    }
+
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+}
@@ -0,0 +1,72 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static org.objectweb.asm.ClassReader.SKIP_CODE;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
+import static org.objectweb.asm.Opcodes.ACC_ENUM;
+import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ASM9;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+
+/**
+ * Class hierarchy information from the header of a class file, and constant names of enums.
+ */
+@Value
+class ClassHeader {
+
+    public static ClassHeader of(byte[] bytecode) {
+        var classReader = new ClassReader(bytecode);
+        var isEnum = (classReader.getAccess() & ACC_ENUM) != 0;
+        List<String> enumConstants = new ArrayList<>();
+        if (isEnum) {
+            // fields are read only for enums, to keep reading of other classes cheap
+            classReader.accept(new ClassVisitor(ASM9) {
+                @Nullable
+                @Override
+                public FieldVisitor visitField(
+                    int access,
+                    String name,
+                    String descriptor,
+                    @Nullable String signature,
+                    @Nullable Object value
+                ) {
+                    if ((access & ACC_ENUM) != 0) {
+                        enumConstants.add(name);
+                    }
+                    return null;
+                }
+            }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+        }
+
+        return new ClassHeader(
+            (classReader.getAccess() & ACC_INTERFACE) != 0,
+            classReader.getSuperName(),
+            List.of(classReader.getInterfaces()),
+            isEnum,
+            List.copyOf(enumConstants)
+        );
+    }
+
+
+    boolean isInterface;
+
+    @Nullable
+    String superName;
+
+    List<String> interfaces;
+
+    boolean isEnum;
+
+    /**
+     * Names of enum constants, in declaration order. Empty for classes that are not enums.
+     */
+    List<String> enumConstants;
+
+}
@@ -0,0 +1,23 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Finds {@link ClassHeader} of a class in a single classpath element.
+ */
+interface ClassHeaderLocator extends Closeable {
+
+    /**
+     * Returns {@code null} if the class is not found.
+     */
+    @Nullable
+    ClassHeader find(String internalName) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // nothing to close by default
+    }
+
+}
@@ -0,0 +1,182 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.readAllBytes;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resolves class hierarchy for stack map frames computation by reading only headers of class files.
+ *
+ * <p>Unlike {@link ClassLoader}, classes are never defined, so static initializers are not executed and
+ * Metaspace is not used.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+class ClassHierarchyResolver implements Closeable {
+
+    private static final String OBJECT_INTERNAL_NAME = "java/lang/Object";
+
+
+    /**
+     * Creates a resolver for classes of a classpath (directories and JAR files) and JDK classes.
+     *
+     * <p>If {@code classpathCache} is set, JAR files and JDK classes are taken from it and shared with other
+     * resolvers, and JAR files are released when the resolver is closed. Otherwise, they are owned by the created
+     * resolver.
+     */
+    @SneakyThrows
+    public static ClassHierarchyResolver forClasspath(
+        Collection<File> classpath,
+        @Nullable ClasspathCacheService classpathCache
+    ) {
+        List<ClassHeaderLocator> locators = new ArrayList<>();
+        List<Closeable> ownedLocators = new ArrayList<>();
+        for (var file : classpath) {
+            var path = file.toPath();
+            if (isDirectory(path)) {
+                locators.add(new DirectoryClassHeaders(path));
+            } else if (isRegularFile(path)) {
+                var jar = classpathCache != null ? classpathCache.acquireJar(file) : new JarClassHeaders(file);
+                locators.add(jar);
+                ownedLocators.add(jar);
+            }
+        }
+
+        if (classpathCache != null) {
+            locators.add(classpathCache.getJdkClasses());
+        } else {
+            locators.add(new ClassLoaderClassHeaders(ClassLoader.getPlatformClassLoader()));
+        }
+
+        return new ClassHierarchyResolver(locators, ownedLocators);
+    }
+
+    /**
+     * Creates a resolver for classes that are available as resources of a {@link ClassLoader}.
+     */
+    public static ClassHierarchyResolver forClassLoader(ClassLoader classLoader) {
+        return new ClassHierarchyResolver(List.of(new ClassLoaderClassHeaders(classLoader)), List.of());
+    }
+
+
+    private final List<ClassHeaderLocator> locators;
+
+    private final List<Closeable> ownedLocators;
+
+    private final Map<String, ClassHeader> headers = new ConcurrentHashMap<>();
+
+    /**
+     * Works the same way as {@link org.objectweb.asm.ClassWriter#getCommonSuperClass(String, String)},
+     * but without loading classes.
+     */
+    public String getCommonSuperClass(String type1, String type2) {
+        if (isAssignableFrom(type1, type2)) {
+            return type1;
+        }
+        if (isAssignableFrom(type2, type1)) {
+            return type2;
+        }
+
+        if (getHeader(type1).isInterface() || getHeader(type2).isInterface()) {
+            return OBJECT_INTERNAL_NAME;
+        }
+
+        var type = type1;
+        do {
+            type = getHeader(type).getSuperName();
+            if (type == null) {
+                return OBJECT_INTERNAL_NAME;
+            }
+        } while (!isAssignableFrom(type, type2));
+        return type;
+    }
+
+    /**
+     * Returns names of constants of the enum class, or {@code null} if the class is not an enum.
+     */
+    @Nullable
+    public List<String> getEnumConstants(String internalName) {
+        var header = getHeader(internalName);
+        return header.isEnum() ? header.getEnumConstants() : null;
+    }
+
+    private boolean isAssignableFrom(String type, String fromType) {
+        if (type.equals(fromType) || type.equals(OBJECT_INTERNAL_NAME)) {
+            return true;
+        }
+
+        var header = getHeader(fromType);
+        var superName = header.getSuperName();
+        if (superName != null && isAssignableFrom(type, superName)) {
+            return true;
+        }
+
+        for (var interfaceName : header.getInterfaces()) {
+            if (isAssignableFrom(type, interfaceName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private ClassHeader getHeader(String internalName) {
+        var header = headers.get(internalName);
+        if (header == null) {
+            header = readHeader(internalName);
+            headers.putIfAbsent(internalName, header);
+        }
+        return header;
+    }
+
+    @SneakyThrows
+    private ClassHeader readHeader(String internalName) {
+        for (var locator : locators) {
+            var header = locator.find(internalName);
+            if (header != null) {
+                return header;
+            }
+        }
+
+        throw new TypeNotPresentException(internalName.replace('/', '.'), null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var locator : ownedLocators) {
+            locator.close();
+        }
+    }
+
+
+    @RequiredArgsConstructor
+    private static class DirectoryClassHeaders implements ClassHeaderLocator {
+
+        private final Path dirPath;
+
+        @Nullable
+        @Override
+        public ClassHeader find(String internalName) throws IOException {
+            var path = dirPath.resolve(internalName + ".class");
+            if (!isRegularFile(path)) {
+                return null;
+            }
+            return ClassHeader.of(readAllBytes(path));
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Class headers of class files that are available as resources of a {@link ClassLoader}.
+ * Classes are never loaded.
+ */
+@RequiredArgsConstructor
+class ClassLoaderClassHeaders implements ClassHeaderLocator {
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, Optional<ClassHeader>> headers = new ConcurrentHashMap<>();
+
+    @Nullable
+    @Override
+    @SuppressWarnings("java:S2789")
+    public ClassHeader find(String internalName) throws IOException {
+        var header = headers.get(internalName);
+        if (header == null) {
+            header = Optional.ofNullable(readHeader(internalName));
+            headers.putIfAbsent(internalName, header);
+        }
+        return header.orElse(null);
+    }
+
+    @Nullable
+    private ClassHeader readHeader(String internalName) throws IOException {
+        try (var in = classLoader.getResourceAsStream(internalName + ".class")) {
+            if (in == null) {
+                return null;
+            }
+            return ClassHeader.of(in.readAllBytes());
+        }
+    }
+
+}
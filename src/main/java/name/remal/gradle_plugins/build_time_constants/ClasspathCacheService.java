@@ -0,0 +1,217 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.CustomLog;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Caches {@link JarClassHeaders} of classpath JAR files, so every JAR file is indexed once per build,
+ * instead of once per compilation task.
+ *
+ * <p>Cached JAR files are identified by their path, size, and modification time.
+ * The least recently used JAR files are evicted when the cache exceeds {@link Parameters#getMaxSize()}.
+ * Evicted JAR files are closed when all processing tasks that use them release them.
+ */
+@CustomLog
+abstract class ClasspathCacheService implements BuildService<ClasspathCacheService.Parameters>, AutoCloseable {
+
+    static final String MAX_SIZE_GRADLE_PROPERTY = "name.remal.build-time-constants.classpath-cache-size";
+
+    static final int DEFAULT_MAX_SIZE = 256;
+
+    interface Parameters extends BuildServiceParameters {
+        Property<Integer> getMaxSize();
+    }
+
+
+    private final Map<JarKey, CachedJar> jars = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ClassLoaderClassHeaders jdkClasses =
+        new ClassLoaderClassHeaders(ClassLoader.getPlatformClassLoader());
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Returns class headers of the JAR file. The returned locator must be closed when it's not used anymore.
+     *
+     * <p>The JAR file is indexed outside the cache lock, so different JAR files are indexed concurrently,
+     * and a JAR file requested by several tasks at the same time is indexed once.
+     */
+    @SneakyThrows
+    public ClassHeaderLocator acquireJar(File file) {
+        var key = new JarKey(file.getAbsolutePath(), file.length(), file.lastModified());
+        CachedJar cachedJar;
+        boolean isIndexedByCurrentThread = false;
+        synchronized (jars) {
+            cachedJar = jars.get(key);
+            if (cachedJar != null) {
+                hitCount.incrementAndGet();
+            } else {
+                missCount.incrementAndGet();
+                cachedJar = new CachedJar();
+                jars.put(key, cachedJar);
+                isIndexedByCurrentThread = true;
+            }
+            ++cachedJar.usages;
+        }
+
+        if (isIndexedByCurrentThread) {
+            try {
+                cachedJar.headers.complete(new JarClassHeaders(file));
+            } catch (Throwable e) {
+                cachedJar.headers.completeExceptionally(e);
+                synchronized (jars) {
+                    jars.remove(key, cachedJar);
+                }
+            }
+
+            closeAll(evictExceeding());
+        }
+
+        try {
+            return new AcquiredJar(cachedJar, cachedJar.headers.get());
+        } catch (ExecutionException e) {
+            release(cachedJar);
+            throw e.getCause();
+        }
+    }
+
+    private void release(CachedJar cachedJar) throws IOException {
+        synchronized (jars) {
+            --cachedJar.usages;
+            if (!cachedJar.evicted || cachedJar.usages > 0) {
+                return;
+            }
+        }
+
+        cachedJar.close();
+    }
+
+    /**
+     * Removes the least recently used JAR files from the cache. Removed JAR files are closed when they are not
+     * used anymore.
+     *
+     * @return removed JAR files that are not used and have to be closed
+     */
+    private List<CachedJar> evictExceeding() {
+        var maxSize = getParameters().getMaxSize().getOrElse(DEFAULT_MAX_SIZE);
+        List<CachedJar> unusedJars = new ArrayList<>();
+        synchronized (jars) {
+            var iterator = jars.values().iterator();
+            while (jars.size() > maxSize && iterator.hasNext()) {
+                var cachedJar = iterator.next();
+                iterator.remove();
+                cachedJar.evicted = true;
+                if (cachedJar.usages == 0) {
+                    unusedJars.add(cachedJar);
+                }
+            }
+        }
+        return unusedJars;
+    }
+
+    private static void closeAll(Collection<CachedJar> cachedJars) throws IOException {
+        for (var cachedJar : cachedJars) {
+            cachedJar.close();
+        }
+    }
+
+    public ClassLoaderClassHeaders getJdkClasses() {
+        return jdkClasses;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        logger.info(
+            "Build time constants classpath cache: {} hits, {} misses",
+            getHitCount(),
+            getMissCount()
+        );
+
+        List<CachedJar> cachedJars;
+        synchronized (jars) {
+            cachedJars = new ArrayList<>(jars.values());
+            jars.clear();
+        }
+        closeAll(cachedJars);
+    }
+
+
+    /**
+     * Guarded by {@link #jars}, except {@link #headers}.
+     */
+    private static class CachedJar {
+
+        private final CompletableFuture<JarClassHeaders> headers = new CompletableFuture<>();
+
+        private int usages;
+
+        private boolean evicted;
+
+        private void close() throws IOException {
+            var jar = headers.getNow(null);
+            if (jar != null) {
+                jar.close();
+            }
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private class AcquiredJar implements ClassHeaderLocator {
+
+        private final CachedJar cachedJar;
+
+        private final JarClassHeaders headers;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Nullable
+        @Override
+        public ClassHeader find(String internalName) throws IOException {
+            return headers.find(internalName);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released.compareAndSet(false, true)) {
+                release(cachedJar);
+            }
+        }
+
+    }
+
+    @Value
+    private static class JarKey {
+        String path;
+        long size;
+        long lastModified;
+    }
+
+}
@@ -0,0 +1,212 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.lang.String.format;
+import static java.util.Arrays.binarySearch;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Build-time properties prepared for lookups from many call sites. Should be created once per task action and
+ * shared between {@link ClassFileProcessor} instances, including ones running in parallel.
+ *
+ * <p>Property names are indexed by their sorted order, so names matching a pattern are found by a range search
+ * over the literal prefix of the pattern, instead of by a scan of all properties. Converted values and pattern
+ * matching results are memoized.
+ */
+class CompiledProperties {
+
+    private final Map<String, String> properties;
+
+    private final String[] names;
+
+    private final String[] sortedNames;
+
+    /**
+     * Positions of {@link #sortedNames} in {@link #properties}. Used to keep the order of properties in results.
+     */
+    private final int[] sortedNamePositions;
+
+    private final Map<Class<?>, Map<String, Object>> convertedValues = new ConcurrentHashMap<>();
+
+    private final Map<String, List<String>> namesByPattern = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<String, Map<String, ?>>> valuesByPattern = new ConcurrentHashMap<>();
+
+    public CompiledProperties(Map<String, String> properties) {
+        this.properties = new LinkedHashMap<>(properties);
+        this.names = this.properties.keySet().toArray(new String[0]);
+
+        var positions = new Integer[names.length];
+        for (int i = 0; i < positions.length; ++i) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (pos1, pos2) -> names[pos1].compareTo(names[pos2]));
+
+        this.sortedNames = new String[names.length];
+        this.sortedNamePositions = new int[names.length];
+        for (int i = 0; i < positions.length; ++i) {
+            sortedNames[i] = names[positions[i]];
+            sortedNamePositions[i] = positions[i];
+        }
+    }
+
+    /**
+     * Returns the not converted property value, or {@code null} if the property is not set.
+     */
+    @Nullable
+    public String getRawValue(String propertyName) {
+        return properties.get(propertyName);
+    }
+
+    /**
+     * Returns the property value converted to the type. The conversion is performed once per property and type.
+     *
+     * @throws IllegalStateException if the property is not set or can't be converted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(String propertyName, Class<T> type, Function<String, T> converter) {
+        var typeValues = convertedValues.computeIfAbsent(type, __ -> new ConcurrentHashMap<>());
+        var value = typeValues.get(propertyName);
+        if (value == null) {
+            value = convert(propertyName, type, converter);
+            typeValues.putIfAbsent(propertyName, value);
+        }
+        return (T) value;
+    }
+
+    private <T> T convert(String propertyName, Class<T> type, Function<String, T> converter) {
+        var stringValue = properties.get(propertyName);
+        if (stringValue == null) {
+            throw new IllegalStateException(format(
+                "Property '%s' is not set",
+                propertyName
+            ));
+        }
+
+        try {
+            return converter.apply(stringValue);
+        } catch (Exception e) {
+            throw new IllegalStateException(format(
+                "Property '%s' is not %s",
+                propertyName,
+                type.getSimpleName()
+            ));
+        }
+    }
+
+    /**
+     * Returns values of properties with names matching the pattern (see
+     * {@link #matchesPropertyNamePattern(String, String)}), converted to the type. The order of properties is kept.
+     *
+     * @throws IllegalStateException if any of the matching properties can't be converted
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getValuesByPattern(
+        String propertyNamePattern,
+        Class<T> type,
+        Function<String, T> converter
+    ) {
+        var typeValues = valuesByPattern.computeIfAbsent(type, __ -> new ConcurrentHashMap<>());
+        var values = typeValues.get(propertyNamePattern);
+        if (values == null) {
+            Map<String, T> result = new LinkedHashMap<>();
+            for (var name : getNamesByPattern(propertyNamePattern)) {
+                result.put(name, getValue(name, type, converter));
+            }
+            values = unmodifiableMap(result);
+            typeValues.putIfAbsent(propertyNamePattern, values);
+        }
+        return (Map<String, T>) values;
+    }
+
+    private List<String> getNamesByPattern(String propertyNamePattern) {
+        var result = namesByPattern.get(propertyNamePattern);
+        if (result == null) {
+            result = findNamesByPattern(propertyNamePattern);
+            namesByPattern.putIfAbsent(propertyNamePattern, result);
+        }
+        return result;
+    }
+
+    private List<String> findNamesByPattern(String propertyNamePattern) {
+        var wildcardIndex = propertyNamePattern.indexOf('*');
+        if (wildcardIndex < 0) {
+            return properties.containsKey(propertyNamePattern) ? List.of(propertyNamePattern) : List.of();
+        }
+
+        var segments = splitPropertyNamePattern(propertyNamePattern);
+        var prefix = segments[0];
+        var from = findFirstSortedIndexWithPrefix(prefix);
+        var positions = new int[sortedNames.length - from];
+        var positionsCount = 0;
+        for (int i = from; i < sortedNames.length; ++i) {
+            var name = sortedNames[i];
+            if (!name.startsWith(prefix)) {
+                break;
+            }
+            if (matchesPropertyNamePattern(segments, name)) {
+                positions[positionsCount++] = sortedNamePositions[i];
+            }
+        }
+
+        Arrays.sort(positions, 0, positionsCount);
+        List<String> result = new ArrayList<>(positionsCount);
+        for (int i = 0; i < positionsCount; ++i) {
+            result.add(names[positions[i]]);
+        }
+        return unmodifiableList(result);
+    }
+
+    private int findFirstSortedIndexWithPrefix(String prefix) {
+        var index = binarySearch(sortedNames, prefix);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Checks if the property name matches the pattern, where <code>*</code> matches any number of any characters.
+     */
+    public static boolean matchesPropertyNamePattern(String propertyNamePattern, String propertyName) {
+        return matchesPropertyNamePattern(splitPropertyNamePattern(propertyNamePattern), propertyName);
+    }
+
+    private static String[] splitPropertyNamePattern(String propertyNamePattern) {
+        return propertyNamePattern.split("\\*", -1);
+    }
+
+    private static boolean matchesPropertyNamePattern(String[] segments, String propertyName) {
+        if (segments.length == 1) {
+            return segments[0].equals(propertyName);
+        }
+
+        var firstSegment = segments[0];
+        var lastSegment = segments[segments.length - 1];
+        if (propertyName.length() < firstSegment.length() + lastSegment.length()
+            || !propertyName.startsWith(firstSegment)
+            || !propertyName.endsWith(lastSegment)
+        ) {
+            return false;
+        }
+
+        var position = firstSegment.length();
+        var end = propertyName.length() - lastSegment.length();
+        for (int i = 1; i < segments.length - 1; ++i) {
+            var segment = segments[i];
+            var index = propertyName.indexOf(segment, position);
+            if (index < 0 || index + segment.length() > end) {
+                return false;
+            }
+            position = index + segment.length();
+        }
+        return true;
+    }
+
+}
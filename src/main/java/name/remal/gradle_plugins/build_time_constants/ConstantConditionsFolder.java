@@ -0,0 +1,355 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static lombok.AccessLevel.PRIVATE;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getIntConstant;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getLongConstant;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.DOUBLE;
+import static org.objectweb.asm.Opcodes.FLOAT;
+import static org.objectweb.asm.Opcodes.F_APPEND;
+import static org.objectweb.asm.Opcodes.F_CHOP;
+import static org.objectweb.asm.Opcodes.F_FULL;
+import static org.objectweb.asm.Opcodes.F_NEW;
+import static org.objectweb.asm.Opcodes.F_SAME;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFGE;
+import static org.objectweb.asm.Opcodes.IFGT;
+import static org.objectweb.asm.Opcodes.IFLE;
+import static org.objectweb.asm.Opcodes.IFLT;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.IF_ICMPEQ;
+import static org.objectweb.asm.Opcodes.IF_ICMPLE;
+import static org.objectweb.asm.Opcodes.INTEGER;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.JSR;
+import static org.objectweb.asm.Opcodes.LCMP;
+import static org.objectweb.asm.Opcodes.LONG;
+import static org.objectweb.asm.Opcodes.RET;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.UNINITIALIZED_THIS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NoArgsConstructor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * Folds conditional jumps that compare constants, like ones produced by substitution of
+ * {@code BuildTimeConstants.getBooleanProperty()}, and removes code that becomes unreachable, together with its
+ * exception table entries and local variables.
+ *
+ * <p>Stack map frames are expanded before code removal, as compressed frames are relative to previous frames.
+ * {@link org.objectweb.asm.ClassWriter} compresses them again.
+ */
+@NoArgsConstructor(access = PRIVATE)
+abstract class ConstantConditionsFolder {
+
+    /**
+     * @return {@code true} if the method was changed
+     */
+    public static boolean fold(String ownerInternalName, MethodNode method) {
+        var instructions = method.instructions;
+        for (var insn : instructions) {
+            if (insn.getOpcode() == JSR || insn.getOpcode() == RET) {
+                // subroutines of old class files are not supported by the reachability analysis
+                return false;
+            }
+        }
+
+        var folded = false;
+        while (foldConstantConditions(instructions)) {
+            folded = true;
+        }
+        if (!folded) {
+            return false;
+        }
+
+        expandFrames(ownerInternalName, method);
+        removeUnreachableCode(method);
+        removeJumpsToNextInsn(instructions);
+        removeShadowedFrames(instructions);
+        return true;
+    }
+
+
+    private static boolean foldConstantConditions(InsnList instructions) {
+        var changed = false;
+        for (var insn = instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            var opcode = insn.getOpcode();
+            if (opcode == LCMP) {
+                var value2 = getLongConstant(insn.getPrevious());
+                var value1 = value2 != null ? getLongConstant(insn.getPrevious().getPrevious()) : null;
+                if (value1 != null) {
+                    var result = new InsnNode(ICONST_0 + Long.compare(value1, value2));
+                    instructions.remove(insn.getPrevious().getPrevious());
+                    instructions.remove(insn.getPrevious());
+                    instructions.set(insn, result);
+                    insn = result;
+                    changed = true;
+                }
+
+            } else if (IFEQ <= opcode && opcode <= IFLE) {
+                var value = getIntConstant(insn.getPrevious());
+                if (value != null) {
+                    instructions.remove(insn.getPrevious());
+                    insn = replaceConditionalJump((JumpInsnNode) insn, isJumpTaken(opcode, value, 0), instructions);
+                    changed = true;
+                }
+
+            } else if (IF_ICMPEQ <= opcode && opcode <= IF_ICMPLE) {
+                var value2 = getIntConstant(insn.getPrevious());
+                var value1 = value2 != null ? getIntConstant(insn.getPrevious().getPrevious()) : null;
+                if (value1 != null) {
+                    var taken = isJumpTaken(opcode - IF_ICMPEQ + IFEQ, value1, value2);
+                    instructions.remove(insn.getPrevious().getPrevious());
+                    instructions.remove(insn.getPrevious());
+                    insn = replaceConditionalJump((JumpInsnNode) insn, taken, instructions);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the node to continue iteration from
+     */
+    private static AbstractInsnNode replaceConditionalJump(JumpInsnNode jump, boolean taken, InsnList instructions) {
+        if (taken) {
+            var gotoInsn = new JumpInsnNode(GOTO, jump.label);
+            instructions.set(jump, gotoInsn);
+            return gotoInsn;
+        }
+
+        var prev = jump.getPrevious();
+        instructions.remove(jump);
+        return prev != null ? prev : instructions.getFirst();
+    }
+
+    private static boolean isJumpTaken(int opcode, int value1, int value2) {
+        switch (opcode) {
+            case IFEQ:
+                return value1 == value2;
+            case IFNE:
+                return value1 != value2;
+            case IFLT:
+                return value1 < value2;
+            case IFGE:
+                return value1 >= value2;
+            case IFGT:
+                return value1 > value2;
+            case IFLE:
+                return value1 <= value2;
+            default:
+                throw new IllegalArgumentException("Unsupported opcode: " + opcode);
+        }
+    }
+
+    private static void expandFrames(String ownerInternalName, MethodNode method) {
+        List<Object> locals = getImplicitFrameLocals(ownerInternalName, method);
+        for (var insn : method.instructions) {
+            if (!(insn instanceof FrameNode)) {
+                continue;
+            }
+
+            var frame = (FrameNode) insn;
+            List<Object> stack = frame.stack != null ? frame.stack : List.of();
+            switch (frame.type) {
+                case F_NEW:
+                case F_FULL:
+                    locals = new ArrayList<>(frame.local);
+                    break;
+                case F_APPEND:
+                    locals.addAll(frame.local);
+                    break;
+                case F_CHOP:
+                    locals = new ArrayList<>(locals.subList(0, locals.size() - frame.local.size()));
+                    break;
+                case F_SAME:
+                    stack = List.of();
+                    break;
+                default:
+                    break;
+            }
+
+            frame.type = F_NEW;
+            frame.local = new ArrayList<>(locals);
+            frame.stack = new ArrayList<>(stack);
+        }
+    }
+
+    private static List<Object> getImplicitFrameLocals(String ownerInternalName, MethodNode method) {
+        List<Object> locals = new ArrayList<>();
+        if ((method.access & ACC_STATIC) == 0) {
+            locals.add(method.name.equals("<init>") ? UNINITIALIZED_THIS : ownerInternalName);
+        }
+        for (var argumentType : Type.getArgumentTypes(method.desc)) {
+            switch (argumentType.getSort()) {
+                case Type.BOOLEAN:
+                case Type.CHAR:
+                case Type.BYTE:
+                case Type.SHORT:
+                case Type.INT:
+                    locals.add(INTEGER);
+                    break;
+                case Type.FLOAT:
+                    locals.add(FLOAT);
+                    break;
+                case Type.LONG:
+                    locals.add(LONG);
+                    break;
+                case Type.DOUBLE:
+                    locals.add(DOUBLE);
+                    break;
+                case Type.ARRAY:
+                    locals.add(argumentType.getDescriptor());
+                    break;
+                default:
+                    locals.add(argumentType.getInternalName());
+                    break;
+            }
+        }
+        return locals;
+    }
+
+
+    private static void removeUnreachableCode(MethodNode method) {
+        var instructions = method.instructions;
+        var insns = instructions.toArray();
+        Map<AbstractInsnNode, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < insns.length; ++i) {
+            indexes.put(insns[i], i);
+        }
+
+        var reachable = new boolean[insns.length];
+        var queue = new ArrayDeque<Integer>();
+        queue.add(0);
+        var handlersReached = new boolean[method.tryCatchBlocks.size()];
+        while (!queue.isEmpty()) {
+            while (!queue.isEmpty()) {
+                int index = queue.poll();
+                while (index < insns.length && !reachable[index]) {
+                    reachable[index] = true;
+                    var insn = insns[index];
+                    var opcode = insn.getOpcode();
+                    if (insn instanceof JumpInsnNode) {
+                        queue.add(indexes.get(((JumpInsnNode) insn).label));
+                        if (opcode == GOTO) {
+                            break;
+                        }
+                    } else if (insn instanceof TableSwitchInsnNode) {
+                        var switchInsn = (TableSwitchInsnNode) insn;
+                        queue.add(indexes.get(switchInsn.dflt));
+                        switchInsn.labels.forEach(label -> queue.add(indexes.get(label)));
+                        break;
+                    } else if (insn instanceof LookupSwitchInsnNode) {
+                        var switchInsn = (LookupSwitchInsnNode) insn;
+                        queue.add(indexes.get(switchInsn.dflt));
+                        switchInsn.labels.forEach(label -> queue.add(indexes.get(label)));
+                        break;
+                    } else if ((IRETURN <= opcode && opcode <= RETURN) || opcode == ATHROW) {
+                        break;
+                    }
+                    ++index;
+                }
+            }
+
+            for (int i = 0; i < handlersReached.length; ++i) {
+                var tryCatchBlock = method.tryCatchBlocks.get(i);
+                if (!handlersReached[i] && hasReachableInsns(
+                    insns,
+                    reachable,
+                    indexes.get(tryCatchBlock.start),
+                    indexes.get(tryCatchBlock.end)
+                )) {
+                    handlersReached[i] = true;
+                    queue.add(indexes.get(tryCatchBlock.handler));
+                }
+            }
+        }
+
+        var nextRealInsnReachable = false;
+        for (int i = insns.length - 1; i >= 0; --i) {
+            var insn = insns[i];
+            if (insn.getOpcode() >= 0) {
+                nextRealInsnReachable = reachable[i];
+                if (!nextRealInsnReachable) {
+                    instructions.remove(insn);
+                }
+            } else if (insn instanceof FrameNode || insn instanceof LineNumberNode) {
+                if (!nextRealInsnReachable) {
+                    instructions.remove(insn);
+                }
+            }
+        }
+
+        method.tryCatchBlocks.removeIf(tryCatchBlock ->
+            !hasReachableInsns(insns, reachable, indexes.get(tryCatchBlock.start), indexes.get(tryCatchBlock.end))
+        );
+        if (method.localVariables != null) {
+            method.localVariables.removeIf(localVariable ->
+                !hasReachableInsns(insns, reachable, indexes.get(localVariable.start), indexes.get(localVariable.end))
+            );
+        }
+    }
+
+    private static boolean hasReachableInsns(AbstractInsnNode[] insns, boolean[] reachable, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (reachable[i] && insns[i].getOpcode() >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void removeJumpsToNextInsn(InsnList instructions) {
+        for (var insn = instructions.getFirst(); insn != null; ) {
+            var next = insn.getNext();
+            if (insn.getOpcode() == GOTO) {
+                var label = ((JumpInsnNode) insn).label;
+                var following = next;
+                while (following != null && following.getOpcode() < 0 && following != label) {
+                    following = following.getNext();
+                }
+                if (following == label) {
+                    instructions.remove(insn);
+                }
+            }
+            insn = next;
+        }
+    }
+
+    /**
+     * Code removal can leave several frames before the same instruction, but only one frame per offset is allowed.
+     * The last frame is kept, as it was computed for the instruction that follows it.
+     */
+    private static void removeShadowedFrames(InsnList instructions) {
+        FrameNode prevFrame = null;
+        for (var insn : instructions) {
+            if (insn instanceof FrameNode) {
+                if (prevFrame != null) {
+                    instructions.remove(prevFrame);
+                }
+                prevFrame = (FrameNode) insn;
+            } else if (insn.getOpcode() >= 0) {
+                prevFrame = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.ICONST_5;
+import static org.objectweb.asm.Opcodes.ICONST_M1;
+import static org.objectweb.asm.Opcodes.LCONST_0;
+import static org.objectweb.asm.Opcodes.LCONST_1;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+
+import java.util.HashSet;
+import java.util.Set;
+import lombok.NoArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * Creates and recognizes instructions that push constants.
+ */
+@NoArgsConstructor(access = PRIVATE)
+abstract class ConstantInsnUtils {
+
+    public static final int MAX_CONSTANT_UTF8_LENGTH = 0xFFFF;
+
+
+    /**
+     * Creates the shortest instruction that pushes the value.
+     */
+    public static AbstractInsnNode createConstantInsn(Object value) {
+        if (value instanceof Boolean) {
+            var boolValue = (Boolean) value;
+            return new InsnNode(boolValue ? ICONST_1 : ICONST_0);
+        }
+
+        if (value instanceof Integer) {
+            int intValue = (Integer) value;
+            if (-1 <= intValue && intValue <= 5) {
+                return new InsnNode(ICONST_0 + intValue);
+            }
+            if (-128 <= intValue && intValue <= 127) {
+                return new IntInsnNode(BIPUSH, intValue);
+            }
+            if (-32768 <= intValue && intValue <= 32767) {
+                return new IntInsnNode(SIPUSH, intValue);
+            }
+        }
+
+        if (value instanceof Long) {
+            long longValue = (Long) value;
+            if (0 <= longValue && longValue <= 1) {
+                return new InsnNode(LCONST_0 + (int) longValue);
+            }
+        }
+
+        return new LdcInsnNode(value);
+    }
+
+    @Nullable
+    public static Integer getIntConstant(@Nullable AbstractInsnNode insn) {
+        if (insn == null) {
+            return null;
+        }
+
+        var opcode = insn.getOpcode();
+        if (ICONST_M1 <= opcode && opcode <= ICONST_5) {
+            return opcode - ICONST_0;
+        } else if (opcode == BIPUSH || opcode == SIPUSH) {
+            return ((IntInsnNode) insn).operand;
+        } else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Integer) {
+            return (Integer) ((LdcInsnNode) insn).cst;
+        }
+        return null;
+    }
+
+    @Nullable
+    public static Long getLongConstant(@Nullable AbstractInsnNode insn) {
+        if (insn == null) {
+            return null;
+        }
+
+        var opcode = insn.getOpcode();
+        if (opcode == LCONST_0 || opcode == LCONST_1) {
+            return (long) (opcode - LCONST_0);
+        } else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Long) {
+            return (Long) ((LdcInsnNode) insn).cst;
+        }
+        return null;
+    }
+
+    @Nullable
+    public static String getStringConstant(@Nullable AbstractInsnNode insn) {
+        if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof String) {
+            return (String) ((LdcInsnNode) insn).cst;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the length of the string in modified UTF-8, which is used by {@code CONSTANT_Utf8} entries.
+     */
+    public static long getModifiedUtf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            var ch = value.charAt(i);
+            if (0 < ch && ch <= 0x7F) {
+                length += 1;
+            } else if (ch <= 0x7FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns labels that instructions can't be removed across: jump targets and exception table boundaries.
+     */
+    public static Set<LabelNode> getBoundaryLabels(MethodNode method) {
+        Set<LabelNode> labels = new HashSet<>();
+        for (var insn : method.instructions) {
+            if (insn instanceof JumpInsnNode) {
+                labels.add(((JumpInsnNode) insn).label);
+            } else if (insn instanceof TableSwitchInsnNode) {
+                labels.add(((TableSwitchInsnNode) insn).dflt);
+                labels.addAll(((TableSwitchInsnNode) insn).labels);
+            } else if (insn instanceof LookupSwitchInsnNode) {
+                labels.add(((LookupSwitchInsnNode) insn).dflt);
+                labels.addAll(((LookupSwitchInsnNode) insn).labels);
+            }
+        }
+        method.tryCatchBlocks.forEach(tryCatchBlock -> {
+            labels.add(tryCatchBlock.start);
+            labels.add(tryCatchBlock.end);
+            labels.add(tryCatchBlock.handler);
+        });
+        return labels;
+    }
+
+    /**
+     * Returns the previous instruction, skipping labels and line numbers. Returns {@code null} if a frame or a
+     * boundary label is found, as instructions can't be removed across them.
+     */
+    @Nullable
+    public static AbstractInsnNode getPreviousInsn(
+        @Nullable AbstractInsnNode insn,
+        Set<LabelNode> boundaryLabels
+    ) {
+        if (insn == null) {
+            return null;
+        }
+
+        for (var prev = insn.getPrevious(); prev != null; prev = prev.getPrevious()) {
+            if (prev instanceof FrameNode || boundaryLabels.contains(prev)) {
+                return null;
+            } else if (prev.getOpcode() >= 0) {
+                return prev;
+            }
+        }
+        return null;
+    }
+
+}
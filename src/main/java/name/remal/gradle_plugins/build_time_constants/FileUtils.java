@@ -0,0 +1,88 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createTempFile;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.size;
+import static java.nio.file.Files.write;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = PRIVATE)
+abstract class FileUtils {
+
+    private static final int COMPARISON_BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> COMPARISON_BUFFER =
+        ThreadLocal.withInitial(() -> new byte[COMPARISON_BUFFER_SIZE]);
+
+
+    /**
+     * Writes the content to the file, unless the file already has the same content. So, the last modified time of
+     * the file is not changed if the content is the same.
+     *
+     * <p>The content is written to a temporary file in the same directory first, and then the temporary file is
+     * moved to the target path. So, a partially written file is never visible to other tasks.
+     *
+     * @return {@code true} if the file was written, {@code false} if the file already had the same content
+     */
+    public static boolean writeIfChanged(Path path, byte[] content) throws IOException {
+        if (hasContent(path, content)) {
+            return false;
+        }
+
+        var dirPath = path.toAbsolutePath().getParent();
+        if (dirPath != null) {
+            createDirectories(dirPath);
+        }
+
+        var tempPath = createTempFile(dirPath, path.getFileName() + "-", ".tmp");
+        try {
+            write(tempPath, content);
+            try {
+                move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                move(tempPath, path, REPLACE_EXISTING);
+            }
+        } finally {
+            deleteIfExists(tempPath);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the file has exactly the content. Sizes are compared first, so files of a different size are not
+     * read.
+     */
+    public static boolean hasContent(Path path, byte[] content) throws IOException {
+        if (!isRegularFile(path) || size(path) != content.length) {
+            return false;
+        }
+
+        var buffer = COMPARISON_BUFFER.get();
+        try (var in = newInputStream(path)) {
+            int offset = 0;
+            while (offset < content.length) {
+                var length = in.readNBytes(buffer, 0, Math.min(buffer.length, content.length - offset));
+                if (length <= 0
+                    || !Arrays.equals(buffer, 0, length, content, offset, offset + length)
+                ) {
+                    return false;
+                }
+                offset += length;
+            }
+            return in.read() < 0;
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.size;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+import static name.remal.gradle_plugins.build_time_constants.ClassFileProcessorUtils.processClassFiles;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.SHARED_HOLDER;
+import static org.gradle.api.tasks.PathSensitivity.RELATIVE;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import lombok.SneakyThrows;
+import name.remal.gradle_plugins.build_time_constants.PropertyUsageIndex.ClassUsage;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+/**
+ * Processes class files produced by a compilation task and writes the result to a separate directory.
+ *
+ * <p>Unlike processing class files in place, property values are not inputs of the compilation task, so
+ * changing them doesn't cause recompilation.
+ */
+@CacheableTask
+public abstract class InlineBuildTimeConstants extends DefaultTask {
+
+    private static final String INDEX_FILE_NAME = "property-usage.index";
+
+    private static final String OUTPUT_DIR_NAME = "classes";
+
+
+    /**
+     * Not set if {@link BuildTimeConstantsExtension#getProcessInSeparateTasks()} is disabled, so the task is
+     * skipped.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @org.gradle.api.tasks.Optional
+    @IgnoreEmptyDirectories
+    @Incremental
+    @PathSensitive(RELATIVE)
+    public abstract DirectoryProperty getClassesDirectory();
+
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Input
+    public abstract MapProperty<String, String> getProperties();
+
+    @Input
+    public abstract Property<PropertyMapImplementation> getPropertyMapImplementation();
+
+    @Input
+    public abstract Property<PropertyMapStorage> getPropertyMapStorage();
+
+    /**
+     * Identifies class files processed by the task, see {@link SharedPropertyMaps#SharedPropertyMaps(String)}.
+     * The task path is used by default.
+     */
+    @Input
+    @org.gradle.api.tasks.Optional
+    public abstract Property<String> getSharedPropertyMapsOutputName();
+
+    @Input
+    public abstract Property<Boolean> getFoldConstantConditions();
+
+    @Input
+    public abstract Property<Boolean> getFoldPureMethodCalls();
+
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    @Internal
+    public abstract Property<ProcessingPoolService> getProcessingPool();
+
+    @Internal
+    public abstract Property<ClasspathCacheService> getClasspathCache();
+
+    @Internal
+    public abstract Property<RewrittenClassesCacheService> getRewrittenClassesCache();
+
+    /**
+     * If set, {@link ProcessingMetrics} are written to this file in JSON format. The report describes a
+     * particular execution, so it's not a cacheable output of the task.
+     */
+    @Internal
+    public abstract RegularFileProperty getMetricsReportFile();
+
+    /**
+     * Not set if {@link BuildTimeConstantsExtension#getProcessInSeparateTasks()} is disabled, as the destination
+     * directory is the output directory of the compilation task in this mode.
+     */
+    @OutputDirectory
+    @org.gradle.api.tasks.Optional
+    public abstract DirectoryProperty getDestinationDirectory();
+
+    /**
+     * Keeps {@link PropertyUsageIndex} and a copy of the processed class files between executions.
+     *
+     * <p>Gradle cleans the destination directory before a non-incremental execution, which happens when property
+     * values are changed. So, class files that don't read changed properties are copied from here instead of
+     * being processed again.
+     */
+    @LocalState
+    public abstract DirectoryProperty getStateDirectory();
+
+    @TaskAction
+    @SneakyThrows
+    public void execute(InputChanges inputChanges) {
+        var classesDirPath = getClassesDirectory().get().getAsFile().toPath();
+        var destinationDirPath = getDestinationDirectory().get().getAsFile().toPath();
+        var stateDirPath = getStateDirectory().get().getAsFile().toPath();
+        var indexPath = stateDirPath.resolve(INDEX_FILE_NAME);
+        var outputDirPath = stateDirPath.resolve(OUTPUT_DIR_NAME);
+
+        var properties = getProperties().get();
+        var classpath = getObjects().fileCollection().from(classesDirPath).plus(getClasspath());
+        var classpathFingerprint = getClasspathFingerprint(
+            getClasspath().getFiles(),
+            getPropertyMapImplementation().get(),
+            getPropertyMapStorage().get(),
+            getFoldConstantConditions().get(),
+            getFoldPureMethodCalls().get()
+        );
+
+        var previousIndex = Optional.ofNullable(PropertyUsageIndex.readAndDelete(indexPath))
+            .filter(it -> it.getClasspathFingerprint().equals(classpathFingerprint))
+            .orElse(null);
+
+        var index = new PropertyUsageIndex(properties, classpathFingerprint);
+        var metrics = new ProcessingMetrics();
+        List<Path> classFilePaths = new ArrayList<>();
+        Set<String> changedRelativePaths = ConcurrentHashMap.newKeySet();
+        Set<String> removedRelativePaths = new HashSet<>();
+        if (previousIndex == null) {
+            // no information about the previous output: process everything
+            getFileSystemOperations().delete(spec -> spec.delete(outputDirPath.toFile()));
+            createDirectories(outputDirPath);
+            getObjects().fileTree().from(classesDirPath).visit(details -> {
+                if (!details.isDirectory()) {
+                    var relativePath = details.getRelativePath().getPathString();
+                    if (relativePath.endsWith(".class")) {
+                        classFilePaths.add(classesDirPath.resolve(relativePath));
+                    } else {
+                        copyFile(classesDirPath.resolve(relativePath), outputDirPath.resolve(relativePath));
+                    }
+                }
+            });
+
+        } else {
+            final Set<String> changedPropertyNames;
+            if (inputChanges.isIncremental()) {
+                // only class files have been changed
+                previousIndex.getRelativePaths().forEach(relativePath ->
+                    index.put(relativePath, requireNonNull(previousIndex.get(relativePath)))
+                );
+                changedPropertyNames = emptySet();
+
+            } else {
+                // property values may have been changed: reuse the previous output for unaffected classes
+                changedPropertyNames = previousIndex.getChangedPropertyNames(properties);
+            }
+
+            createDirectories(outputDirPath);
+
+            Set<String> visitedRelativePaths = new HashSet<>();
+            for (var change : inputChanges.getFileChanges(getClassesDirectory())) {
+                if (change.getFileType() == FileType.DIRECTORY) {
+                    continue;
+                }
+
+                var relativePath = change.getNormalizedPath();
+                visitedRelativePaths.add(relativePath);
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    deleteIfExists(outputDirPath.resolve(relativePath));
+                    index.remove(relativePath);
+                    removedRelativePaths.add(relativePath);
+
+                } else if (relativePath.endsWith(".class")) {
+                    var sourcePath = classesDirPath.resolve(relativePath);
+                    var previousUsage = inputChanges.isIncremental() ? null : previousIndex.get(relativePath);
+                    if (previousUsage != null
+                        && !previousUsage.isClasspathDependent()
+                        && previousUsage.isSourceFileUnchanged(
+                            size(sourcePath),
+                            getLastModifiedTime(sourcePath).toMillis()
+                        )
+                        && !previousUsage.isAffectedBy(changedPropertyNames)
+                        && exists(outputDirPath.resolve(relativePath))
+                    ) {
+                        index.put(relativePath, previousUsage);
+                        continue;
+                    }
+
+                    classFilePaths.add(sourcePath);
+
+                } else {
+                    copyFile(classesDirPath.resolve(relativePath), outputDirPath.resolve(relativePath));
+                    changedRelativePaths.add(relativePath);
+                }
+            }
+
+            if (!inputChanges.isIncremental()) {
+                for (var relativePath : previousIndex.getRelativePaths()) {
+                    if (!visitedRelativePaths.contains(relativePath)) {
+                        deleteIfExists(outputDirPath.resolve(relativePath));
+                        removedRelativePaths.add(relativePath);
+                    }
+                }
+            }
+        }
+
+        try (var classHierarchyResolver = ClassHierarchyResolver.forClasspath(
+            classpath.getFiles(),
+            getClasspathCache().getOrNull()
+        )) {
+            var compiledProperties = new CompiledProperties(properties);
+            var options = new ClassFileProcessingOptions(
+                getPropertyMapImplementation().get(),
+                getPropertyMapStorage().get(),
+                getFoldConstantConditions().get(),
+                getFoldPureMethodCalls().get()
+            );
+            var propertyResources = new PropertyResources();
+            var sharedPropertyMaps = getPropertyMapStorage().get() == SHARED_HOLDER
+                ? new SharedPropertyMaps(getSharedPropertyMapsOutputName().getOrElse(getPath()))
+                : null;
+            var rewrittenClassesCache = Optional.ofNullable(getRewrittenClassesCache().getOrNull())
+                .map(RewrittenClassesCacheService::getCache)
+                .orElse(null);
+            var processingPool = Optional.ofNullable(getProcessingPool().getOrNull())
+                .map(ProcessingPoolService::getPool)
+                .orElse(null);
+            processClassFiles(classFilePaths, getParallelism().getOrElse(1), processingPool, sourcePath -> {
+                var relativePath = classesDirPath.relativize(sourcePath);
+                var targetPath = outputDirPath.resolve(relativePath);
+                metrics.fileVisited();
+                var processor = new ClassFileProcessor(
+                    compiledProperties,
+                    classHierarchyResolver,
+                    metrics,
+                    options,
+                    propertyResources,
+                    sharedPropertyMaps,
+                    rewrittenClassesCache
+                );
+                if (!processor.process(sourcePath, targetPath)) {
+                    copyFile(sourcePath, targetPath);
+                }
+
+                var relativePathString = getRelativePathString(relativePath);
+                index.put(relativePathString, createClassUsage(sourcePath, processor));
+                changedRelativePaths.add(relativePathString);
+            });
+
+            propertyResources.writeTo(outputDirPath, metrics);
+            changedRelativePaths.addAll(propertyResources.getResources().keySet());
+            if (sharedPropertyMaps != null) {
+                sharedPropertyMaps.writeTo(outputDirPath, metrics);
+                sharedPropertyMaps.getHolderInternalNames().forEach(holderInternalName ->
+                    changedRelativePaths.add(holderInternalName + ".class")
+                );
+            }
+        }
+
+        if (!inputChanges.isIncremental() || previousIndex == null) {
+            // Gradle has cleaned the destination directory, or it can contain files of unknown executions
+            getFileSystemOperations().sync(spec -> {
+                spec.from(outputDirPath.toFile());
+                spec.into(destinationDirPath.toFile());
+            });
+
+        } else {
+            for (var relativePath : removedRelativePaths) {
+                deleteIfExists(destinationDirPath.resolve(relativePath));
+            }
+            for (var relativePath : changedRelativePaths) {
+                copyFile(outputDirPath.resolve(relativePath), destinationDirPath.resolve(relativePath));
+            }
+        }
+
+        index.writeTo(indexPath);
+
+        var metricsReportFile = getMetricsReportFile().getAsFile().getOrNull();
+        if (metricsReportFile != null) {
+            metrics.writeJsonReport(metricsReportFile.toPath(), getPath());
+        }
+    }
+
+    @SneakyThrows
+    private static ClassUsage createClassUsage(Path sourcePath, ClassFileProcessor processor) {
+        return new ClassUsage(
+            size(sourcePath),
+            getLastModifiedTime(sourcePath).toMillis(),
+            processor.getUsedPropertyNames(),
+            processor.getUsedPropertyNamePatterns(),
+            !processor.isCacheable()
+        );
+    }
+
+    /**
+     * Paths, sizes, and modification times of classpath files.
+     * Classpath directories are represented by their paths only.
+     *
+     * <p>Processing options are included too, as they change the result of processing of every class.
+     */
+    @SneakyThrows
+    private static String getClasspathFingerprint(Collection<File> classpath, Object... processingOptions) {
+        var hasher = sha256().newHasher();
+        for (var option : processingOptions) {
+            hasher.putString(String.valueOf(option), UTF_8);
+        }
+        for (var file : classpath) {
+            hasher.putString(file.getAbsolutePath(), UTF_8);
+            if (file.isFile()) {
+                hasher.putLong(file.length());
+                hasher.putLong(file.lastModified());
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String getRelativePathString(Path relativePath) {
+        var separator = relativePath.getFileSystem().getSeparator();
+        return relativePath.toString().replace(separator, "/");
+    }
+
+    @SneakyThrows
+    private static void copyFile(Path sourcePath, Path targetPath) {
+        writeIfChanged(targetPath, readAllBytes(sourcePath));
+    }
+
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+}
@@ -0,0 +1,106 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static org.gradle.api.tasks.PathSensitivity.NONE;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Processes class files inside a JAR or ZIP archive, for example, an archive produced by a code generation
+ * task, or a shaded JAR file.
+ *
+ * <p>Entries that are not changed are copied with their compressed bytes, so the archive is not unpacked.
+ */
+@CacheableTask
+public abstract class InlineBuildTimeConstantsInArchive extends DefaultTask {
+
+    @InputFile
+    @PathSensitive(NONE)
+    public abstract RegularFileProperty getArchiveFile();
+
+    /**
+     * Classpath of the archive classes. Used only if stack map frames have to be computed.
+     */
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Input
+    public abstract MapProperty<String, String> getProperties();
+
+    @Input
+    public abstract Property<PropertyMapImplementation> getPropertyMapImplementation();
+
+    /**
+     * {@link PropertyMapStorage#SHARED_HOLDER} is not supported, {@link PropertyMapStorage#OWNING_CLASS} is used
+     * instead.
+     */
+    @Input
+    public abstract Property<PropertyMapStorage> getPropertyMapStorage();
+
+    @Input
+    public abstract Property<Boolean> getFoldConstantConditions();
+
+    @Input
+    public abstract Property<Boolean> getFoldPureMethodCalls();
+
+    @Internal
+    public abstract Property<ClasspathCacheService> getClasspathCache();
+
+    /**
+     * If set, {@link ProcessingMetrics} are written to this file in JSON format. The report describes a
+     * particular execution, so it's not a cacheable output of the task.
+     */
+    @Internal
+    public abstract RegularFileProperty getMetricsReportFile();
+
+    @OutputFile
+    public abstract RegularFileProperty getDestinationFile();
+
+    @TaskAction
+    @SneakyThrows
+    public void execute() {
+        var archiveFile = getArchiveFile().get().getAsFile();
+        var destinationFile = getDestinationFile().get().getAsFile();
+
+        var metrics = new ProcessingMetrics();
+        List<File> classpath = new ArrayList<>();
+        classpath.add(archiveFile);
+        classpath.addAll(getClasspath().getFiles());
+
+        try (var classHierarchyResolver = ClassHierarchyResolver.forClasspath(
+            classpath,
+            getClasspathCache().getOrNull()
+        )) {
+            var properties = new CompiledProperties(getProperties().get());
+            var options = new ClassFileProcessingOptions(
+                getPropertyMapImplementation().get(),
+                getPropertyMapStorage().get(),
+                getFoldConstantConditions().get(),
+                getFoldPureMethodCalls().get()
+            );
+            var processor = new ArchiveProcessor(properties, classHierarchyResolver, metrics, options);
+            processor.process(archiveFile.toPath(), destinationFile.toPath());
+        }
+
+        var metricsReportFile = getMetricsReportFile().getAsFile().getOrNull();
+        if (metricsReportFile != null) {
+            metrics.writeJsonReport(metricsReportFile.toPath(), getPath());
+        }
+    }
+
+}
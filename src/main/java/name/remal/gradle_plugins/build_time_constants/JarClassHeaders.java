@@ -0,0 +1,99 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Class headers of a JAR file.
+ *
+ * <p>Names of class file entries are indexed when the JAR file is opened, so looking up a class that is not
+ * in the JAR file doesn't touch the file system. Entries are accessed directly via the central directory,
+ * and read headers are memoized.
+ */
+class JarClassHeaders implements ClassHeaderLocator {
+
+    private final File file;
+
+    private final Set<String> classEntryNames = new HashSet<>();
+
+    private final Map<String, ClassHeader> headers = new ConcurrentHashMap<>();
+
+    @Nullable
+    private ZipFile zipFile;
+
+    public JarClassHeaders(File file) throws IOException {
+        this.file = file;
+        var zip = new ZipFile(file);
+        try {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                var name = entry.getName();
+                if (name.endsWith(".class") && !entry.isDirectory()) {
+                    classEntryNames.add(name);
+                }
+            }
+        } catch (Throwable e) {
+            try {
+                zip.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        this.zipFile = zip;
+    }
+
+    @Nullable
+    @Override
+    public ClassHeader find(String internalName) throws IOException {
+        var resourceName = internalName + ".class";
+        if (!classEntryNames.contains(resourceName)) {
+            return null;
+        }
+
+        var header = headers.get(resourceName);
+        if (header == null) {
+            header = readHeader(resourceName);
+            headers.putIfAbsent(resourceName, header);
+        }
+        return header;
+    }
+
+    private synchronized ClassHeader readHeader(String resourceName) throws IOException {
+        var zip = getZipFile();
+        var entry = zip.getEntry(resourceName);
+        if (entry == null) {
+            throw new IOException("Entry not found in " + file + ": " + resourceName);
+        }
+
+        try (var in = zip.getInputStream(entry)) {
+            return ClassHeader.of(in.readAllBytes());
+        }
+    }
+
+    /**
+     * The file is not opened again after {@link #close()}, so a file handle is never leaked.
+     */
+    private synchronized ZipFile getZipFile() throws IOException {
+        if (zipFile == null) {
+            throw new IOException("Closed: " + file);
+        }
+        return zipFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (zipFile != null) {
+            zipFile.close();
+            zipFile = null;
+        }
+    }
+
+}
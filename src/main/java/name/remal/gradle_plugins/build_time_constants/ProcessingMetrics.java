@@ -0,0 +1,190 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.write;
+import static java.util.Locale.ROOT;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.SneakyThrows;
+
+/**
+ * Metrics of class files processing by a single task. Can be updated from multiple threads.
+ *
+ * <p>Wall and CPU times of processing phases are summed over all processing threads.
+ */
+class ProcessingMetrics {
+
+    enum Phase {
+        PARSING,
+        REWRITING,
+        WRITING,
+    }
+
+    private static final boolean CPU_TIME_SUPPORTED = getThreadMXBean().isCurrentThreadCpuTimeSupported();
+
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder filesVisited = new LongAdder();
+    private final LongAdder classesParsed = new LongAdder();
+    private final LongAdder classesRewritten = new LongAdder();
+    private final LongAdder classesTakenFromCache = new LongAdder();
+    private final Map<String, LongAdder> substitutions = new ConcurrentHashMap<>();
+    private final LongAdder syntheticMapFieldsAdded = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writesSkipped = new LongAdder();
+    private final Map<Phase, LongAdder> phaseWallNanos = new ConcurrentHashMap<>();
+    private final Map<Phase, LongAdder> phaseCpuNanos = new ConcurrentHashMap<>();
+
+    public void fileVisited() {
+        filesVisited.increment();
+    }
+
+    public void classParsed(long bytes) {
+        classesParsed.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void classRewritten() {
+        classesRewritten.increment();
+    }
+
+    /**
+     * Registers a class that was not rewritten, as it was taken from {@link RewrittenClassesCache}.
+     */
+    public void classTakenFromCache() {
+        classesTakenFromCache.increment();
+    }
+
+    public void substituted(String methodName) {
+        substitutions.computeIfAbsent(methodName, __ -> new LongAdder()).increment();
+    }
+
+    public void syntheticMapFieldsAdded(int count) {
+        syntheticMapFieldsAdded.add(count);
+    }
+
+    public void bytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Registers a file that was not written, as it already had the same content.
+     */
+    public void writeSkipped() {
+        writesSkipped.increment();
+    }
+
+    /**
+     * Starts measuring a phase in the current thread.
+     */
+    public PhaseTimer start(Phase phase) {
+        return new PhaseTimer(phase);
+    }
+
+    public final class PhaseTimer {
+
+        private final Phase phase;
+        private final long startWallNanos;
+        private final long startCpuNanos;
+
+        private PhaseTimer(Phase phase) {
+            this.phase = phase;
+            this.startWallNanos = System.nanoTime();
+            this.startCpuNanos = getCurrentThreadCpuTime();
+        }
+
+        public void stop() {
+            phaseWallNanos.computeIfAbsent(phase, __ -> new LongAdder())
+                .add(System.nanoTime() - startWallNanos);
+            phaseCpuNanos.computeIfAbsent(phase, __ -> new LongAdder())
+                .add(getCurrentThreadCpuTime() - startCpuNanos);
+        }
+
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? getThreadMXBean().getCurrentThreadCpuTime() : 0;
+    }
+
+
+    @SneakyThrows
+    public void writeJsonReport(Path path, String taskPath) {
+        var json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"task\": ").append(quote(taskPath)).append(",\n");
+        json.append("  \"filesVisited\": ").append(filesVisited.sum()).append(",\n");
+        json.append("  \"classesParsed\": ").append(classesParsed.sum()).append(",\n");
+        json.append("  \"classesRewritten\": ").append(classesRewritten.sum()).append(",\n");
+        json.append("  \"classesTakenFromCache\": ").append(classesTakenFromCache.sum()).append(",\n");
+        json.append("  \"substitutions\": {");
+        appendCounters(json, substitutions);
+        json.append("},\n");
+        json.append("  \"syntheticMapFieldsAdded\": ").append(syntheticMapFieldsAdded.sum()).append(",\n");
+        json.append("  \"bytesRead\": ").append(bytesRead.sum()).append(",\n");
+        json.append("  \"bytesWritten\": ").append(bytesWritten.sum()).append(",\n");
+        json.append("  \"writesSkipped\": ").append(writesSkipped.sum()).append(",\n");
+        json.append("  \"wallTimeNanos\": ").append(System.nanoTime() - startNanos).append(",\n");
+        json.append("  \"phases\": {");
+        var phases = Phase.values();
+        for (int i = 0; i < phases.length; ++i) {
+            var phase = phases[i];
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    ").append(quote(phase.name().toLowerCase(ROOT))).append(": {");
+            json.append("\"wallTimeNanos\": ").append(sum(phaseWallNanos, phase)).append(", ");
+            json.append("\"cpuTimeNanos\": ").append(sum(phaseCpuNanos, phase));
+            json.append('}');
+        }
+        json.append("\n  }\n");
+        json.append("}\n");
+
+        var dirPath = path.getParent();
+        if (dirPath != null) {
+            createDirectories(dirPath);
+        }
+        write(path, json.toString().getBytes(UTF_8));
+    }
+
+    private static void appendCounters(StringBuilder json, Map<String, LongAdder> counters) {
+        var sortedCounters = new TreeMap<>(counters);
+        var first = true;
+        for (var entry : sortedCounters.entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue().sum());
+        }
+        if (!first) {
+            json.append("\n  ");
+        }
+    }
+
+    private static long sum(Map<Phase, LongAdder> values, Phase phase) {
+        var value = values.get(phase);
+        return value != null ? value.sum() : 0;
+    }
+
+    private static String quote(String string) {
+        var result = new StringBuilder(string.length() + 2);
+        result.append('"');
+        for (int i = 0; i < string.length(); ++i) {
+            var ch = string.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                result.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                result.append(String.format("\\u%04x", (int) ch));
+            } else {
+                result.append(ch);
+            }
+        }
+        result.append('"');
+        return result.toString();
+    }
+
+}
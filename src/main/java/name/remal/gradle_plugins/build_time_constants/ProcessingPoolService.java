@@ -0,0 +1,42 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Provides a thread pool shared by all processing tasks of the build.
+ *
+ * <p>Gradle executes compilation tasks in parallel. So, if every task created its own pool, the number of
+ * processing threads could reach the square of the max number of Gradle workers. The shared pool has
+ * {@link Parameters#getMaxThreads()} threads, so processing never uses more threads than Gradle workers.
+ */
+abstract class ProcessingPoolService implements BuildService<ProcessingPoolService.Parameters>, AutoCloseable {
+
+    interface Parameters extends BuildServiceParameters {
+        Property<Integer> getMaxThreads();
+    }
+
+
+    @Nullable
+    private ForkJoinPool pool;
+
+    public synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Math.max(getParameters().getMaxThreads().getOrElse(1), 1));
+        }
+        return pool;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+/**
+ * Defines how maps returned by {@code BuildTimeConstants.get*Properties()} methods are created.
+ */
+public enum PropertyMapImplementation {
+
+    /**
+     * {@link java.util.LinkedHashMap} wrapped with {@link java.util.Collections#unmodifiableMap(java.util.Map)}.
+     * The order of properties is kept.
+     */
+    ORDERED,
+
+    /**
+     * {@code Map.of()} (up to 10 entries) or {@code Map.ofEntries()} for class files of Java 9 and above, which
+     * take less heap and bytecode. The order of properties is not kept.
+     *
+     * <p>{@link #ORDERED} is used for class files of older Java versions.
+     */
+    COMPACT,
+
+}
@@ -0,0 +1,31 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+/**
+ * Defines where maps returned by {@code BuildTimeConstants.get*Properties()} methods are stored.
+ * Lists and arrays returned by {@code BuildTimeConstants.get*ListProperty()} and
+ * {@code BuildTimeConstants.get*ArrayProperty()} methods are stored the same way.
+ */
+public enum PropertyMapStorage {
+
+    /**
+     * Every class stores its maps in its own synthetic fields, initialized in its static initializer.
+     */
+    OWNING_CLASS,
+
+    /**
+     * Maps are stored in synthetic fields of a holder class generated for every package, so classes of the package
+     * share equal maps.
+     *
+     * <p>Not supported for {@link InlineBuildTimeConstantsInArchive} tasks, {@link #OWNING_CLASS} is used instead.
+     */
+    SHARED_HOLDER,
+
+    /**
+     * Maps are created on first use, as dynamic constants of the class that uses them. Classes that are loaded but
+     * never read their maps don't create them.
+     *
+     * <p>Dynamic constants require Java 11 class files. Older class files use {@link #OWNING_CLASS} instead.
+     */
+    LAZY,
+
+}
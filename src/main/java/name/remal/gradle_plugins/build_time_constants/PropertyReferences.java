@@ -0,0 +1,222 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.walk;
+import static name.remal.gradle_plugins.build_time_constants.ClassFileProcessor.BUILD_TIME_CONSTANTS_INTERNAL_NAMES;
+import static name.remal.gradle_plugins.build_time_constants.ClassFileProcessor.hasBuildTimeConstantsReferences;
+import static name.remal.gradle_plugins.build_time_constants.CompiledProperties.matchesPropertyNamePattern;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipInputStream;
+import lombok.Getter;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Names and name patterns of properties referenced by class files. Used to resolve only the referenced properties,
+ * see {@link BuildTimeConstantsExtension#getResolvePropertiesLazily()}.
+ *
+ * <p>Every {@code String} constant passed to a {@code BuildTimeConstants} method is collected: a name pattern if
+ * the method name ends with {@code Properties}, and a property name otherwise. So, the references are a superset of
+ * properties read by {@link ClassFileProcessor}.
+ */
+class PropertyReferences {
+
+    @Getter
+    private final Set<String> propertyNames = new TreeSet<>();
+
+    @Getter
+    private final Set<String> propertyNamePatterns = new TreeSet<>();
+
+    /**
+     * Checks if the property is referenced by name or by any of the name patterns.
+     */
+    public boolean isReferenced(String propertyName) {
+        if (propertyNames.contains(propertyName)) {
+            return true;
+        }
+
+        for (var propertyNamePattern : propertyNamePatterns) {
+            if (matchesPropertyNamePattern(propertyNamePattern, propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects references from all class files of the directory. A not existing directory is skipped.
+     */
+    public void addClassesDirectory(Path dirPath) throws IOException {
+        if (!isDirectory(dirPath)) {
+            return;
+        }
+
+        List<Path> classFilePaths = new ArrayList<>();
+        try (var paths = walk(dirPath)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(".class") && isRegularFile(path))
+                .forEach(classFilePaths::add);
+        }
+
+        for (var classFilePath : classFilePaths) {
+            addClassFile(readAllBytes(classFilePath));
+        }
+    }
+
+    /**
+     * Collects references from all class files of the JAR or ZIP archive. A not existing archive is skipped.
+     */
+    public void addArchive(Path archivePath) throws IOException {
+        if (!isRegularFile(archivePath)) {
+            return;
+        }
+
+        try (var in = new ZipInputStream(newInputStream(archivePath))) {
+            for (var entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    addClassFile(in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    public void addClassFile(byte[] bytecode) {
+        var classReader = new ClassReader(bytecode);
+        if (!hasBuildTimeConstantsReferences(classReader, bytecode)) {
+            return;
+        }
+
+        classReader.accept(new ReferencesClassVisitor(), SKIP_DEBUG | SKIP_FRAMES);
+    }
+
+
+    private class ReferencesClassVisitor extends ClassVisitor {
+
+        ReferencesClassVisitor() {
+            super(ASM9);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+            int access,
+            String name,
+            String descriptor,
+            @Nullable String signature,
+            String @Nullable [] exceptions
+        ) {
+            return new MethodVisitor(api) {
+
+                private final List<String> pendingStrings = new ArrayList<>();
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (value instanceof String) {
+                        pendingStrings.add((String) value);
+                    }
+                }
+
+                @Override
+                public void visitLabel(Label label) {
+                    // labels don't break LDC + INVOKESTATIC sequences
+                }
+
+                @Override
+                public void visitMethodInsn(
+                    int opcode,
+                    String owner,
+                    String methodName,
+                    String methodDescriptor,
+                    boolean isInterface
+                ) {
+                    if (opcode == INVOKESTATIC && BUILD_TIME_CONSTANTS_INTERNAL_NAMES.contains(owner)) {
+                        if (methodName.endsWith("Properties")) {
+                            propertyNamePatterns.addAll(pendingStrings);
+                        } else {
+                            propertyNames.addAll(pendingStrings);
+                        }
+                    }
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitInsn(int opcode) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitVarInsn(int opcode, int varIndex) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescriptor) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(
+                    String indyName,
+                    String indyDescriptor,
+                    Handle bootstrapMethodHandle,
+                    Object... bootstrapMethodArguments
+                ) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitIincInsn(int varIndex, int increment) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                    pendingStrings.clear();
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String arrayDescriptor, int numDimensions) {
+                    pendingStrings.clear();
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.hash.Hashing.sha256;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.WRITING;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.SneakyThrows;
+
+/**
+ * Property values that are stored in generated resources instead of the constant pool of class files.
+ *
+ * <p>Resource names are based on resource contents, so equal values are stored once, and resources of previous
+ * processing results can be kept when only some class files are processed again.
+ */
+class PropertyResources {
+
+    public static final String RESOURCES_DIR = "META-INF/build-time-constants";
+
+
+    private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a resource.
+     *
+     * @return the resource name, relative to the classpath root
+     */
+    public String add(byte[] content) {
+        var resourceName = RESOURCES_DIR + '/' + sha256().hashBytes(content);
+        resources.putIfAbsent(resourceName, content);
+        return resourceName;
+    }
+
+    /**
+     * Returns registered resources, sorted by name.
+     */
+    public Map<String, byte[]> getResources() {
+        return new TreeMap<>(resources);
+    }
+
+    /**
+     * Writes resources to the output directory. Resources that already have the same content are not written again.
+     */
+    @SneakyThrows
+    public void writeTo(Path outputDirPath, ProcessingMetrics metrics) {
+        for (var entry : getResources().entrySet()) {
+            var path = outputDirPath.resolve(entry.getKey());
+            var content = entry.getValue();
+            var timer = metrics.start(WRITING);
+            if (writeIfChanged(path, content)) {
+                metrics.bytesWritten(content.length);
+            } else {
+                metrics.writeSkipped();
+            }
+            timer.stop();
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newInputStream;
+import static java.nio.file.Files.newOutputStream;
+import static name.remal.gradle_plugins.build_time_constants.CompiledProperties.matchesPropertyNamePattern;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Property names and patterns read by every processed class of {@link InlineBuildTimeConstants} task's
+ * output directory.
+ *
+ * <p>When only property values change, only classes that read changed properties are processed again.
+ */
+@RequiredArgsConstructor
+class PropertyUsageIndex {
+
+    private static final int FORMAT_VERSION = 2;
+
+
+    /**
+     * Property values the classes were processed with.
+     */
+    @Getter
+    private final Map<String, String> properties;
+
+    /**
+     * Fingerprint of the classpath used to process the classes.
+     */
+    @Getter
+    private final String classpathFingerprint;
+
+    private final Map<String, ClassUsage> classes = new ConcurrentHashMap<>();
+
+    @Nullable
+    public ClassUsage get(String relativePath) {
+        return classes.get(relativePath);
+    }
+
+    public void put(String relativePath, ClassUsage usage) {
+        classes.put(relativePath, usage);
+    }
+
+    public void remove(String relativePath) {
+        classes.remove(relativePath);
+    }
+
+    public Set<String> getRelativePaths() {
+        return classes.keySet();
+    }
+
+
+    /**
+     * Returns names of properties that were added, removed, or changed compared to the indexed properties.
+     */
+    public Set<String> getChangedPropertyNames(Map<String, String> currentProperties) {
+        Set<String> result = new LinkedHashSet<>();
+        properties.forEach((name, value) -> {
+            if (!Objects.equals(value, currentProperties.get(name))) {
+                result.add(name);
+            }
+        });
+        currentProperties.keySet().forEach(name -> {
+            if (!properties.containsKey(name)) {
+                result.add(name);
+            }
+        });
+        return result;
+    }
+
+
+    @SneakyThrows
+    public void writeTo(Path path) {
+        var dirPath = path.getParent();
+        if (dirPath != null) {
+            createDirectories(dirPath);
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(newOutputStream(path)))) {
+            out.writeInt(FORMAT_VERSION);
+            writeStrings(out, properties.keySet());
+            writeStrings(out, properties.values());
+            writeString(out, classpathFingerprint);
+
+            out.writeInt(classes.size());
+            for (var entry : classes.entrySet()) {
+                writeString(out, entry.getKey());
+                var usage = entry.getValue();
+                out.writeLong(usage.getSize());
+                out.writeLong(usage.getLastModified());
+                writeStrings(out, usage.getPropertyNames());
+                writeStrings(out, usage.getPropertyNamePatterns());
+                out.writeBoolean(usage.isClasspathDependent());
+            }
+        }
+    }
+
+    /**
+     * Reads and deletes an index, so a failed execution can't leave a stale index behind.
+     */
+    @Nullable
+    @SneakyThrows
+    public static PropertyUsageIndex readAndDelete(Path path) {
+        if (!exists(path)) {
+            return null;
+        }
+
+        try {
+            try (var in = new DataInputStream(new BufferedInputStream(newInputStream(path)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    return null;
+                }
+
+                var propertyNames = readStrings(in);
+                var propertyValues = readStrings(in);
+                Map<String, String> properties = new LinkedHashMap<>();
+                var valuesIterator = propertyValues.iterator();
+                propertyNames.forEach(name -> properties.put(name, valuesIterator.next()));
+                var classpathFingerprint = readString(in);
+                var index = new PropertyUsageIndex(properties, classpathFingerprint);
+
+                var count = in.readInt();
+                for (int i = 0; i < count; ++i) {
+                    var relativePath = readString(in);
+                    var size = in.readLong();
+                    var lastModified = in.readLong();
+                    var usedPropertyNames = new LinkedHashSet<>(readStrings(in));
+                    var usedPropertyNamePatterns = new LinkedHashSet<>(readStrings(in));
+                    var classpathDependent = in.readBoolean();
+                    index.put(relativePath, new ClassUsage(
+                        size,
+                        lastModified,
+                        usedPropertyNames,
+                        usedPropertyNamePatterns,
+                        classpathDependent
+                    ));
+                }
+                return index;
+            }
+
+        } finally {
+            deleteIfExists(path);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (var string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF(String)}, supports strings longer than 65535 bytes.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        var bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+
+    @Value
+    public static class ClassUsage {
+
+        /**
+         * Size of the source class file.
+         */
+        long size;
+
+        /**
+         * Modification time of the source class file.
+         */
+        long lastModified;
+
+        Set<String> propertyNames;
+
+        Set<String> propertyNamePatterns;
+
+        /**
+         * {@code true} if the rewritten class depends on the classpath or generated resources. Classpath directories
+         * are fingerprinted by their paths only, so such classes are processed again on non-incremental executions.
+         */
+        boolean classpathDependent;
+
+        public boolean isSourceFileUnchanged(long currentSize, long currentLastModified) {
+            return size == currentSize && lastModified == currentLastModified;
+        }
+
+        public boolean isAffectedBy(Set<String> changedPropertyNames) {
+            if (changedPropertyNames.isEmpty()) {
+                return false;
+            }
+
+            for (var propertyName : propertyNames) {
+                if (changedPropertyNames.contains(propertyName)) {
+                    return true;
+                }
+            }
+
+            for (var propertyNamePattern : propertyNamePatterns) {
+                for (var changedPropertyName : changedPropertyNames) {
+                    if (matchesPropertyNamePattern(propertyNamePattern, changedPropertyName)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
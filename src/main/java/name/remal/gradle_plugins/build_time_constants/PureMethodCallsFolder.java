@@ -0,0 +1,251 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.util.Collections.unmodifiableMap;
+import static lombok.AccessLevel.PRIVATE;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.MAX_CONSTANT_UTF8_LENGTH;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.createConstantInsn;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getBoundaryLabels;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getIntConstant;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getLongConstant;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getModifiedUtf8Length;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getPreviousInsn;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getStringConstant;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.NoArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Replaces invocations of side-effect-free JDK methods with constant parameters, like ones produced by substitution
+ * of {@code BuildTimeConstants.getStringProperty()}, with their results.
+ *
+ * <p>Only methods from a fixed list are folded. The list contains methods which results are fully defined by the
+ * specification and don't depend on the environment (for example, locale-dependent {@code String.toLowerCase()} is
+ * not in the list). If an invocation throws an exception (for example, {@code Integer.parseInt("abc")}), it's kept
+ * as is, so the exception is thrown at runtime.
+ */
+@NoArgsConstructor(access = PRIVATE)
+abstract class PureMethodCallsFolder {
+
+    @FunctionalInterface
+    private interface PureMethod {
+        Object invoke(Object[] args);
+    }
+
+    private static final Map<String, PureMethod> PURE_METHODS = createPureMethods();
+
+    @SuppressWarnings("java:S138")
+    private static Map<String, PureMethod> createPureMethods() {
+        Map<String, PureMethod> methods = new HashMap<>();
+
+        var string = "java/lang/String";
+        methods.put(string + ".length()I", args -> ((String) args[0]).length());
+        methods.put(string + ".isEmpty()Z", args -> ((String) args[0]).isEmpty());
+        methods.put(string + ".isBlank()Z", args -> ((String) args[0]).isBlank());
+        methods.put(string + ".hashCode()I", args -> args[0].hashCode());
+        methods.put(string + ".equals(Ljava/lang/Object;)Z", args -> args[0].equals(args[1]));
+        methods.put(
+            string + ".equalsIgnoreCase(Ljava/lang/String;)Z",
+            args -> ((String) args[0]).equalsIgnoreCase((String) args[1])
+        );
+        methods.put(
+            string + ".compareTo(Ljava/lang/String;)I",
+            args -> ((String) args[0]).compareTo((String) args[1])
+        );
+        methods.put(
+            string + ".contains(Ljava/lang/CharSequence;)Z",
+            args -> ((String) args[0]).contains((String) args[1])
+        );
+        methods.put(
+            string + ".startsWith(Ljava/lang/String;)Z",
+            args -> ((String) args[0]).startsWith((String) args[1])
+        );
+        methods.put(
+            string + ".endsWith(Ljava/lang/String;)Z",
+            args -> ((String) args[0]).endsWith((String) args[1])
+        );
+        methods.put(
+            string + ".indexOf(Ljava/lang/String;)I",
+            args -> ((String) args[0]).indexOf((String) args[1])
+        );
+        methods.put(string + ".indexOf(I)I", args -> ((String) args[0]).indexOf((Integer) args[1]));
+        methods.put(
+            string + ".lastIndexOf(Ljava/lang/String;)I",
+            args -> ((String) args[0]).lastIndexOf((String) args[1])
+        );
+        methods.put(string + ".lastIndexOf(I)I", args -> ((String) args[0]).lastIndexOf((Integer) args[1]));
+        methods.put(string + ".charAt(I)C", args -> ((String) args[0]).charAt((Integer) args[1]));
+        methods.put(
+            string + ".substring(I)Ljava/lang/String;",
+            args -> ((String) args[0]).substring((Integer) args[1])
+        );
+        methods.put(
+            string + ".substring(II)Ljava/lang/String;",
+            args -> ((String) args[0]).substring((Integer) args[1], (Integer) args[2])
+        );
+        methods.put(
+            string + ".concat(Ljava/lang/String;)Ljava/lang/String;",
+            args -> ((String) args[0]).concat((String) args[1])
+        );
+        methods.put(string + ".trim()Ljava/lang/String;", args -> ((String) args[0]).trim());
+        methods.put(string + ".strip()Ljava/lang/String;", args -> ((String) args[0]).strip());
+        methods.put(string + ".valueOf(I)Ljava/lang/String;", args -> String.valueOf((int) (Integer) args[0]));
+        methods.put(string + ".valueOf(J)Ljava/lang/String;", args -> String.valueOf((long) (Long) args[0]));
+        methods.put(string + ".valueOf(Z)Ljava/lang/String;", args -> String.valueOf((boolean) (Boolean) args[0]));
+        methods.put(string + ".valueOf(C)Ljava/lang/String;", args -> String.valueOf((char) (Character) args[0]));
+
+        methods.put("java/lang/Integer.parseInt(Ljava/lang/String;)I", args -> Integer.parseInt((String) args[0]));
+        methods.put("java/lang/Integer.toString(I)Ljava/lang/String;", args -> Integer.toString((Integer) args[0]));
+        methods.put("java/lang/Long.parseLong(Ljava/lang/String;)J", args -> Long.parseLong((String) args[0]));
+        methods.put("java/lang/Long.toString(J)Ljava/lang/String;", args -> Long.toString((Long) args[0]));
+        methods.put(
+            "java/lang/Boolean.parseBoolean(Ljava/lang/String;)Z",
+            args -> Boolean.parseBoolean((String) args[0])
+        );
+        methods.put(
+            "java/lang/Boolean.toString(Z)Ljava/lang/String;",
+            args -> Boolean.toString((Boolean) args[0])
+        );
+
+        methods.put("java/lang/Math.max(II)I", args -> Math.max((Integer) args[0], (Integer) args[1]));
+        methods.put("java/lang/Math.min(II)I", args -> Math.min((Integer) args[0], (Integer) args[1]));
+        methods.put("java/lang/Math.max(JJ)J", args -> Math.max((Long) args[0], (Long) args[1]));
+        methods.put("java/lang/Math.min(JJ)J", args -> Math.min((Long) args[0], (Long) args[1]));
+
+        return unmodifiableMap(methods);
+    }
+
+
+    /**
+     * @return {@code true} if the method was changed
+     */
+    public static boolean fold(MethodNode method) {
+        var instructions = method.instructions;
+        Set<LabelNode> boundaryLabels = null;
+        var changed = false;
+        for (var insn = instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() != INVOKEVIRTUAL && insn.getOpcode() != INVOKESTATIC) {
+                continue;
+            }
+
+            var methodInsn = (MethodInsnNode) insn;
+            var pureMethod = PURE_METHODS.get(methodInsn.owner + '.' + methodInsn.name + methodInsn.desc);
+            if (pureMethod == null) {
+                continue;
+            }
+
+            if (boundaryLabels == null) {
+                boundaryLabels = getBoundaryLabels(method);
+            }
+
+            List<AbstractInsnNode> operandInsns = new ArrayList<>();
+            var args = getConstantArguments(methodInsn, boundaryLabels, operandInsns);
+            if (args == null) {
+                continue;
+            }
+
+            var resultInsn = invoke(pureMethod, args, Type.getReturnType(methodInsn.desc));
+            if (resultInsn == null) {
+                continue;
+            }
+
+            operandInsns.forEach(instructions::remove);
+            instructions.set(insn, resultInsn);
+            insn = resultInsn;
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Returns constant arguments of the invocation. For instance methods, the receiver is the first argument.
+     *
+     * @return the arguments, or {@code null} if some of them are not constants
+     */
+    @Nullable
+    private static Object[] getConstantArguments(
+        MethodInsnNode insn,
+        Set<LabelNode> boundaryLabels,
+        List<AbstractInsnNode> operandInsns
+    ) {
+        var argumentTypes = Type.getArgumentTypes(insn.desc);
+        var hasReceiver = insn.getOpcode() != INVOKESTATIC;
+        var args = new Object[argumentTypes.length + (hasReceiver ? 1 : 0)];
+        AbstractInsnNode operandInsn = insn;
+        for (int i = args.length - 1; i >= 0; --i) {
+            operandInsn = getPreviousInsn(operandInsn, boundaryLabels);
+            final Type type;
+            if (!hasReceiver) {
+                type = argumentTypes[i];
+            } else if (i == 0) {
+                type = Type.getObjectType(insn.owner);
+            } else {
+                type = argumentTypes[i - 1];
+            }
+            var arg = getConstant(operandInsn, type);
+            if (arg == null) {
+                return null;
+            }
+            args[i] = arg;
+            operandInsns.add(operandInsn);
+        }
+        return args;
+    }
+
+    @Nullable
+    private static Object getConstant(@Nullable AbstractInsnNode insn, Type type) {
+        switch (type.getSort()) {
+            case Type.OBJECT:
+                return getStringConstant(insn);
+            case Type.INT:
+                return getIntConstant(insn);
+            case Type.CHAR: {
+                var value = getIntConstant(insn);
+                return value != null ? (char) value.intValue() : null;
+            }
+            case Type.BOOLEAN: {
+                var value = getIntConstant(insn);
+                return value != null ? value != 0 : null;
+            }
+            case Type.LONG:
+                return getLongConstant(insn);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Invokes the method and creates an instruction that pushes the result.
+     *
+     * @return the instruction, or {@code null} if the invocation failed, or the result can't be stored in a constant
+     */
+    @Nullable
+    @SuppressWarnings("java:S1166")
+    private static AbstractInsnNode invoke(PureMethod pureMethod, Object[] args, Type returnType) {
+        final Object result;
+        try {
+            result = pureMethod.invoke(args);
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        if (returnType.getSort() == Type.CHAR) {
+            return createConstantInsn((int) (Character) result);
+        } else if (result instanceof String && getModifiedUtf8Length((String) result) > MAX_CONSTANT_UTF8_LENGTH) {
+            return null;
+        }
+        return createConstantInsn(result);
+    }
+
+}
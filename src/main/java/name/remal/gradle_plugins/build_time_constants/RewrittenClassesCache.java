@@ -0,0 +1,312 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.hash.Hashing.sha256;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.newDirectoryStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.readAttributes;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.util.Comparator.comparingLong;
+import static java.util.function.Function.identity;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+
+import com.google.common.hash.Hasher;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.CustomLog;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Local content-addressed cache of class files rewritten by {@link ClassFileProcessor}, shared between builds,
+ * Gradle daemons, and working copies.
+ *
+ * <p>An entry is found in two steps. The class key is a hash of the source class file and processing options. It
+ * identifies the names and name patterns of properties read by the class. Then, the hash of the class key and values
+ * of these properties identifies the rewritten class file. So, a class is rewritten again only if properties it
+ * reads are changed.
+ *
+ * <p>Files are written atomically, and a file deleted by a concurrent eviction is treated as a cache miss. So, the
+ * cache can be used by multiple processes at once. Last modified time of files is updated on every hit, and the
+ * least recently used files are removed by {@link #evictExceeding()}.
+ */
+@CustomLog
+@RequiredArgsConstructor
+class RewrittenClassesCache {
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Identifies the plugin code, so entries written by other plugin versions are not used.
+     */
+    private static final String PLUGIN_FINGERPRINT = getPluginFingerprint();
+
+    private static final String USAGES_DIR = "usages";
+
+    private static final String CLASSES_DIR = "classes";
+
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public String getClassKey(byte[] bytecode, ClassFileProcessingOptions options) {
+        return sha256().newHasher()
+            .putInt(FORMAT_VERSION)
+            .putString(PLUGIN_FINGERPRINT, UTF_8)
+            .putString(options.toString(), UTF_8)
+            .putBytes(bytecode)
+            .hash()
+            .toString();
+    }
+
+    /**
+     * @return the cached class, or {@code null} if the class is not cached for current values of properties
+     */
+    @Nullable
+    public CachedClass get(String classKey, CompiledProperties properties) {
+        try {
+            var usagePath = directory.resolve(USAGES_DIR).resolve(classKey);
+            var usage = readUsage(readAllBytes(usagePath));
+            var classPath = directory.resolve(CLASSES_DIR).resolve(
+                getValuesKey(classKey, usage.getUsedPropertyNames(), usage.getUsedPropertyNamePatterns(), properties)
+            );
+            var bytecode = readAllBytes(classPath);
+
+            var now = FileTime.fromMillis(System.currentTimeMillis());
+            setLastModifiedTime(usagePath, now);
+            setLastModifiedTime(classPath, now);
+
+            hitCount.incrementAndGet();
+            return new CachedClass(usage.getUsedPropertyNames(), usage.getUsedPropertyNamePatterns(), bytecode);
+
+        } catch (NoSuchFileException e) {
+            missCount.incrementAndGet();
+            return null;
+
+        } catch (IOException e) {
+            logger.debug("Rewritten class can't be read from the cache", e);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(
+        String classKey,
+        CompiledProperties properties,
+        Set<String> usedPropertyNames,
+        Set<String> usedPropertyNamePatterns,
+        byte[] rewrittenBytecode
+    ) {
+        try {
+            writeIfChanged(
+                directory.resolve(USAGES_DIR).resolve(classKey),
+                writeUsage(usedPropertyNames, usedPropertyNamePatterns)
+            );
+            writeIfChanged(
+                directory.resolve(CLASSES_DIR).resolve(
+                    getValuesKey(classKey, usedPropertyNames, usedPropertyNamePatterns, properties)
+                ),
+                rewrittenBytecode
+            );
+
+        } catch (IOException e) {
+            logger.debug("Rewritten class can't be written to the cache", e);
+        }
+    }
+
+    /**
+     * Removes the least recently used files until the cache size doesn't exceed the max size.
+     */
+    public void evictExceeding() {
+        List<CacheFile> files = new ArrayList<>();
+        long totalSize = 0;
+        try {
+            for (var dirName : List.of(USAGES_DIR, CLASSES_DIR)) {
+                var dirPath = directory.resolve(dirName);
+                if (!isDirectory(dirPath)) {
+                    continue;
+                }
+
+                try (var paths = newDirectoryStream(dirPath)) {
+                    for (var path : paths) {
+                        final BasicFileAttributes attributes;
+                        try {
+                            attributes = readAttributes(path, BasicFileAttributes.class);
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+                        files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                        totalSize += attributes.size();
+                    }
+                }
+            }
+
+            if (totalSize <= maxSize) {
+                return;
+            }
+
+            files.sort(comparingLong(CacheFile::getLastModified));
+            for (var file : files) {
+                if (totalSize <= maxSize) {
+                    break;
+                }
+                deleteIfExists(file.getPath());
+                totalSize -= file.getSize();
+            }
+
+        } catch (IOException e) {
+            logger.warn("Rewritten classes cache can't be cleaned up: " + directory, e);
+        }
+    }
+
+
+    private static String getValuesKey(
+        String classKey,
+        Collection<String> usedPropertyNames,
+        Collection<String> usedPropertyNamePatterns,
+        CompiledProperties properties
+    ) {
+        var hasher = sha256().newHasher();
+        putString(hasher, classKey);
+
+        var names = new TreeSet<>(usedPropertyNames);
+        hasher.putInt(names.size());
+        for (var name : names) {
+            putString(hasher, name);
+            var value = properties.getRawValue(name);
+            if (value != null) {
+                hasher.putBoolean(true);
+                putString(hasher, value);
+            } else {
+                hasher.putBoolean(false);
+            }
+        }
+
+        var patterns = new TreeSet<>(usedPropertyNamePatterns);
+        hasher.putInt(patterns.size());
+        for (var pattern : patterns) {
+            putString(hasher, pattern);
+            var values = properties.getValuesByPattern(pattern, String.class, identity());
+            hasher.putInt(values.size());
+            values.forEach((name, value) -> {
+                putString(hasher, name);
+                putString(hasher, value);
+            });
+        }
+
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String string) {
+        hasher.putInt(string.length()).putString(string, UTF_8);
+    }
+
+    private static byte[] writeUsage(Collection<String> usedPropertyNames, Collection<String> usedPropertyNamePatterns)
+        throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            writeStrings(out, usedPropertyNames);
+            writeStrings(out, usedPropertyNamePatterns);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Usage readUsage(byte[] bytes) throws IOException {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            var usedPropertyNames = readStrings(in);
+            var usedPropertyNamePatterns = readStrings(in);
+            return new Usage(usedPropertyNames, usedPropertyNamePatterns);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (var string : strings) {
+            var bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        var count = in.readInt();
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < count; ++i) {
+            var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            result.add(new String(bytes, UTF_8));
+        }
+        return result;
+    }
+
+    @SneakyThrows
+    private static String getPluginFingerprint() {
+        var codeSource = RewrittenClassesCache.class.getProtectionDomain().getCodeSource();
+        var location = codeSource != null ? codeSource.getLocation() : null;
+        if (location != null && location.getProtocol().equals("file")) {
+            var path = Paths.get(location.toURI());
+            if (isRegularFile(path)) {
+                return sha256().hashBytes(readAllBytes(path)).toString();
+            }
+        }
+
+        // classes are not packaged, so they can be changed without changing their location:
+        return UUID.randomUUID().toString();
+    }
+
+
+    @Value
+    public static class CachedClass {
+        Set<String> usedPropertyNames;
+        Set<String> usedPropertyNamePatterns;
+        byte[] bytecode;
+    }
+
+    @Value
+    private static class Usage {
+        Set<String> usedPropertyNames;
+        Set<String> usedPropertyNamePatterns;
+    }
+
+    @Value
+    private static class CacheFile {
+        Path path;
+        long size;
+        long lastModified;
+    }
+
+}
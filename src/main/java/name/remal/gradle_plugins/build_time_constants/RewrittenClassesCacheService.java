@@ -0,0 +1,85 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import lombok.CustomLog;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Provides {@link RewrittenClassesCache} stored in the Gradle user home, so class files rewritten by one build can
+ * be reused by other builds.
+ *
+ * <p>The cache is cleaned up when the build finishes, down to {@link Parameters#getMaxSizeMegabytes()}.
+ */
+@CustomLog
+abstract class RewrittenClassesCacheService
+    implements BuildService<RewrittenClassesCacheService.Parameters>, AutoCloseable {
+
+    static final String MAX_SIZE_GRADLE_PROPERTY = "name.remal.build-time-constants.rewritten-classes-cache-size-mb";
+
+    static final int DEFAULT_MAX_SIZE_MEGABYTES = 256;
+
+    /**
+     * The cache directory, relative to the Gradle user home.
+     */
+    static final String CACHE_DIR = "caches/build-time-constants/rewritten-classes";
+
+    interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getDirectory();
+
+        /**
+         * {@code 0} disables the cache.
+         */
+        Property<Integer> getMaxSizeMegabytes();
+
+    }
+
+
+    @Nullable
+    private volatile RewrittenClassesCache cache;
+
+    /**
+     * @return the cache, or {@code null} if the cache is disabled
+     */
+    @Nullable
+    public RewrittenClassesCache getCache() {
+        var maxSizeMegabytes = getParameters().getMaxSizeMegabytes().getOrElse(DEFAULT_MAX_SIZE_MEGABYTES);
+        if (maxSizeMegabytes <= 0) {
+            return null;
+        }
+
+        var result = cache;
+        if (result == null) {
+            synchronized (this) {
+                result = cache;
+                if (result == null) {
+                    result = new RewrittenClassesCache(
+                        getParameters().getDirectory().get().getAsFile().toPath(),
+                        maxSizeMegabytes * 1024L * 1024L
+                    );
+                    cache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        var result = cache;
+        if (result == null) {
+            return;
+        }
+
+        logger.info(
+            "Build time constants rewritten classes cache: {} hits, {} misses",
+            result.getHitCount(),
+            result.getMissCount()
+        );
+        result.evictExceeding();
+    }
+
+}
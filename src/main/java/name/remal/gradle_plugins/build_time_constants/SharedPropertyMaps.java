@@ -0,0 +1,322 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.hash.Hashing.sha256;
+import static com.google.common.hash.Hashing.sha512;
+import static java.lang.Math.max;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.readAllBytes;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.WRITING;
+import static name.remal.gradle_plugins.toolkit.StringUtils.substringBeforeLast;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
+import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Property maps, lists, and arrays shared by all classes of a package in an output directory. Every distinct value
+ * is stored once, in a synthetic field of a holder class generated in the package.
+ *
+ * <p>The holder class is package-private, so it doesn't add packages to JPMS modules and can be accessed from
+ * interfaces. Its name has a suffix based on the output name, so holder classes of different output directories
+ * (for example, of main and test source sets, or of different libraries) don't hide each other on a classpath.
+ *
+ * <p>Field names are based on value contents. When only some class files are processed again, the holder class is
+ * rebuilt from registered fields and fields of the existing holder class that are still read by classes of the
+ * package.
+ */
+class SharedPropertyMaps {
+
+    public static final String HOLDER_SIMPLE_NAME_PREFIX = "$BuildTimeConstantsPropertyMaps$";
+
+
+    private final String holderSimpleName;
+
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * @param outputName identifies the output directory, for example, by a task path
+     */
+    public SharedPropertyMaps(String outputName) {
+        this.holderSimpleName = HOLDER_SIMPLE_NAME_PREFIX
+            + sha256().hashString(outputName, UTF_8).toString().substring(0, 16);
+    }
+
+    public String getHolderInternalName(String classInternalName) {
+        var packageName = substringBeforeLast(classInternalName, "/", "");
+        return packageName.isEmpty() ? holderSimpleName : packageName + '/' + holderSimpleName;
+    }
+    public static String getFieldName(String scope, Object value, Map<?, ?> values) {
+        var hasher = sha512().newHasher();
+        hasher.putString(value.toString(), UTF_8);
+        values.forEach((key, mapValue) -> {
+            var keyString = key.toString();
+            var valueString = mapValue.toString();
+            hasher.putInt(keyString.length()).putString(keyString, UTF_8);
+            hasher.putInt(valueString.length()).putString(valueString, UTF_8);
+        });
+        return "$" + scope + "$" + hasher.hash();
+    }
+
+    public static String getFieldName(String scope, Object value, List<?> values) {
+        var hasher = sha512().newHasher();
+        hasher.putString(value.toString(), UTF_8);
+        values.forEach(element -> {
+            var elementString = element.toString();
+            hasher.putInt(elementString.length()).putString(elementString, UTF_8);
+        });
+        return "$" + scope + "$" + hasher.hash();
+    }
+
+    /**
+     * Registers a field in the holder class.
+     *
+     * @param classVersion the version of the class file that reads the field
+     * @param initInsns instructions that create the value, executed only if the field is not registered yet
+     */
+    public void add(
+        String holderInternalName,
+        int classVersion,
+        String fieldName,
+        String fieldDescriptor,
+        Supplier<List<AbstractInsnNode>> initInsns
+    ) {
+        var holder = holders.computeIfAbsent(holderInternalName, __ -> new Holder());
+        holder.version.accumulateAndGet(classVersion, Math::max);
+        holder.fields.computeIfAbsent(fieldName, __ -> new HolderField(fieldDescriptor, initInsns.get()));
+    }
+
+    /**
+     * Returns internal names of registered holder classes, sorted.
+     */
+    public Set<String> getHolderInternalNames() {
+        return new TreeSet<>(holders.keySet());
+    }
+
+    /**
+     * Writes holder classes to the output directory. Fields of existing holder classes are kept only if they are
+     * read by classes of the package.
+     */
+    @SneakyThrows
+    public void writeTo(Path outputDirPath, ProcessingMetrics metrics) {
+        for (var entry : holders.entrySet()) {
+            var holderInternalName = entry.getKey();
+            var holder = entry.getValue();
+            var path = outputDirPath.resolve(holderInternalName + ".class");
+            var existingBytecode = isRegularFile(path) ? readAllBytes(path) : null;
+            var usedFieldNames = existingBytecode != null
+                ? getUsedFieldNames(path, holderInternalName)
+                : Set.<String>of();
+            var bytecode = holder.toBytecode(holderInternalName, existingBytecode, usedFieldNames, metrics);
+
+            var timer = metrics.start(WRITING);
+            if (writeIfChanged(path, bytecode)) {
+                metrics.bytesWritten(bytecode.length);
+            } else {
+                metrics.writeSkipped();
+            }
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns names of the holder class fields that are read by classes of the holder class package. The holder
+     * class is package-private, so classes of other packages can't read its fields.
+     */
+    private static Set<String> getUsedFieldNames(Path holderPath, String holderInternalName) throws IOException {
+        List<Path> classFilePaths;
+        try (var paths = list(requireNonNull(holderPath.getParent()))) {
+            classFilePaths = paths
+                .filter(path -> path.getFileName().toString().endsWith(".class")
+                    && !path.equals(holderPath)
+                    && isRegularFile(path)
+                )
+                .collect(toList());
+        }
+
+        Set<String> usedFieldNames = new HashSet<>();
+        for (var classFilePath : classFilePaths) {
+            new ClassReader(readAllBytes(classFilePath)).accept(new ClassVisitor(ASM9) {
+                @Override
+                public MethodVisitor visitMethod(
+                    int access,
+                    String name,
+                    String descriptor,
+                    @Nullable String signature,
+                    String @Nullable [] exceptions
+                ) {
+                    return new MethodVisitor(api) {
+                        @Override
+                        public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDesc) {
+                            if (owner.equals(holderInternalName)) {
+                                usedFieldNames.add(fieldName);
+                            }
+                        }
+                    };
+                }
+            }, SKIP_DEBUG | SKIP_FRAMES);
+        }
+        return usedFieldNames;
+    }
+
+
+    private static class Holder {
+
+        private final AtomicInteger version = new AtomicInteger(V1_8);
+
+        private final Map<String, HolderField> fields = new ConcurrentHashMap<>();
+
+        /**
+         * Creates the holder class from the registered fields and used fields of the existing holder class.
+         * Fields are sorted by name, so the result doesn't depend on the order of processing.
+         */
+        private byte[] toBytecode(
+            String holderInternalName,
+            byte @Nullable [] existingBytecode,
+            Set<String> usedFieldNames,
+            ProcessingMetrics metrics
+        ) {
+            var holderVersion = version.get();
+            Map<String, HolderField> allFields = new TreeMap<>();
+            if (existingBytecode != null) {
+                var existingClassNode = new ClassNode();
+                new ClassReader(existingBytecode).accept(existingClassNode, 0);
+                var existingFields = getExistingFields(existingClassNode, holderInternalName);
+                existingFields.keySet().retainAll(usedFieldNames);
+                if (!existingFields.isEmpty()) {
+                    holderVersion = max(holderVersion, existingClassNode.version & 0xFFFF);
+                }
+                allFields.putAll(existingFields);
+            }
+
+            var addedFieldsCount = 0;
+            for (var field : fields.entrySet()) {
+                if (allFields.putIfAbsent(field.getKey(), field.getValue()) == null) {
+                    ++addedFieldsCount;
+                }
+            }
+            metrics.syntheticMapFieldsAdded(addedFieldsCount);
+
+            var classNode = new ClassNode();
+            classNode.visit(
+                holderVersion,
+                ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                holderInternalName,
+                null,
+                "java/lang/Object",
+                null
+            );
+
+            var staticInitMethod = new MethodNode(ACC_STATIC, "<clinit>", "()V", null, null);
+            var instructions = staticInitMethod.instructions;
+            for (var field : allFields.entrySet()) {
+                var fieldName = field.getKey();
+                var fieldDescriptor = field.getValue().getDescriptor();
+                classNode.fields.add(new FieldNode(
+                    ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC,
+                    fieldName,
+                    fieldDescriptor,
+                    null,
+                    null
+                ));
+                field.getValue().getInitInsns().forEach(instructions::add);
+                instructions.add(new FieldInsnNode(
+                    PUTSTATIC,
+                    holderInternalName,
+                    fieldName,
+                    fieldDescriptor
+                ));
+            }
+            instructions.add(new InsnNode(RETURN));
+            classNode.methods.add(staticInitMethod);
+
+            var classWriter = new ClassWriter(COMPUTE_MAXS);
+            classNode.accept(classWriter);
+            return classWriter.toByteArray();
+        }
+
+        /**
+         * The holder class is generated, so its static initializer is a sequence of field initializations, each
+         * ending with {@code PUTSTATIC} of the field.
+         */
+        private static Map<String, HolderField> getExistingFields(ClassNode classNode, String holderInternalName) {
+            Map<String, String> fieldDescriptors = new HashMap<>();
+            classNode.fields.forEach(field -> fieldDescriptors.put(field.name, field.desc));
+
+            Map<String, HolderField> result = new HashMap<>();
+            var staticInitMethod = classNode.methods.stream()
+                .filter(method -> method.name.equals("<clinit>"))
+                .findFirst()
+                .orElse(null);
+            if (staticInitMethod == null) {
+                return result;
+            }
+
+            var insns = staticInitMethod.instructions.toArray();
+            staticInitMethod.instructions.clear();
+            List<AbstractInsnNode> initInsns = new ArrayList<>();
+            for (var insn : insns) {
+                if (insn.getOpcode() == PUTSTATIC
+                    && ((FieldInsnNode) insn).owner.equals(holderInternalName)
+                ) {
+                    var fieldName = ((FieldInsnNode) insn).name;
+                    var fieldDescriptor = fieldDescriptors.get(fieldName);
+                    if (fieldDescriptor != null) {
+                        result.put(fieldName, new HolderField(fieldDescriptor, initInsns));
+                    }
+                    initInsns = new ArrayList<>();
+
+                } else if (insn.getOpcode() != RETURN) {
+                    initInsns.add(insn);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    @Value
+    private static class HolderField {
+        String descriptor;
+        List<AbstractInsnNode> initInsns;
+    }
+
+}
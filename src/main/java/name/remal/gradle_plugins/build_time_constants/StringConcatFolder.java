@@ -0,0 +1,233 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static lombok.AccessLevel.PRIVATE;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.MAX_CONSTANT_UTF8_LENGTH;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getBoundaryLabels;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getIntConstant;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getLongConstant;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getModifiedUtf8Length;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getPreviousInsn;
+import static name.remal.gradle_plugins.build_time_constants.ConstantInsnUtils.getStringConstant;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.NEW;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.NoArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+/**
+ * Folds string concatenations of constants, like ones produced by substitution of
+ * {@code BuildTimeConstants.getStringProperty()}, into a single {@code LDC} instruction.
+ *
+ * <p>Both forms produced by Java compilers are supported: {@code StringConcatFactory} invocations, and
+ * {@code StringBuilder} chains. Concatenations with not constant operands, and concatenations that can be entered
+ * by a jump from the middle, are kept as is.
+ */
+@NoArgsConstructor(access = PRIVATE)
+abstract class StringConcatFolder {
+
+    public static final String STRING_CONCAT_FACTORY_INTERNAL_NAME = "java/lang/invoke/StringConcatFactory";
+
+    public static final String STRING_BUILDER_INTERNAL_NAME = "java/lang/StringBuilder";
+
+    private static final char RECIPE_ARGUMENT_TAG = '\u0001';
+
+    private static final char RECIPE_CONSTANT_TAG = '\u0002';
+
+
+    /**
+     * @return {@code true} if the method was changed
+     */
+    public static boolean fold(MethodNode method) {
+        var instructions = method.instructions;
+        var boundaryLabels = getBoundaryLabels(method);
+        var changed = false;
+        for (var insn = instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            List<AbstractInsnNode> operandInsns = new ArrayList<>();
+            String value = null;
+            if (insn instanceof InvokeDynamicInsnNode) {
+                value = foldConcatFactoryInvocation((InvokeDynamicInsnNode) insn, boundaryLabels, operandInsns);
+            } else if (isStringBuilderInvocation(insn, INVOKEVIRTUAL, "toString")) {
+                value = foldStringBuilderChain(insn, boundaryLabels, operandInsns);
+            }
+
+            if (value == null || getModifiedUtf8Length(value) > MAX_CONSTANT_UTF8_LENGTH) {
+                continue;
+            }
+
+            operandInsns.forEach(instructions::remove);
+            var ldcInsn = new LdcInsnNode(value);
+            instructions.set(insn, ldcInsn);
+            insn = ldcInsn;
+            changed = true;
+        }
+        return changed;
+    }
+
+    @Nullable
+    private static String foldConcatFactoryInvocation(
+        InvokeDynamicInsnNode insn,
+        Set<LabelNode> boundaryLabels,
+        List<AbstractInsnNode> operandInsns
+    ) {
+        if (!insn.bsm.getOwner().equals(STRING_CONCAT_FACTORY_INTERNAL_NAME)) {
+            return null;
+        }
+
+        var argumentTypes = Type.getArgumentTypes(insn.desc);
+        var arguments = new String[argumentTypes.length];
+        AbstractInsnNode operandInsn = insn;
+        for (int i = argumentTypes.length - 1; i >= 0; --i) {
+            operandInsn = getPreviousInsn(operandInsn, boundaryLabels);
+            var argument = getConstantAsString(operandInsn, argumentTypes[i]);
+            if (argument == null) {
+                return null;
+            }
+            arguments[i] = argument;
+            operandInsns.add(operandInsn);
+        }
+
+        if (insn.name.equals("makeConcat")) {
+            return String.join("", arguments);
+        } else if (!insn.name.equals("makeConcatWithConstants")) {
+            return null;
+        }
+
+        var recipe = (String) insn.bsmArgs[0];
+        var result = new StringBuilder();
+        int argumentIndex = 0;
+        int constantIndex = 1;
+        for (int i = 0; i < recipe.length(); ++i) {
+            var ch = recipe.charAt(i);
+            if (ch == RECIPE_ARGUMENT_TAG) {
+                result.append(arguments[argumentIndex++]);
+            } else if (ch == RECIPE_CONSTANT_TAG) {
+                result.append(insn.bsmArgs[constantIndex++]);
+            } else {
+                result.append(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Folds {@code new StringBuilder().append(...).append(...).toString()} chains. The initial value of the builder
+     * can be passed to the constructor.
+     */
+    @Nullable
+    private static String foldStringBuilderChain(
+        AbstractInsnNode toStringInsn,
+        Set<LabelNode> boundaryLabels,
+        List<AbstractInsnNode> operandInsns
+    ) {
+        var parts = new ArrayDeque<String>();
+        var insn = getPreviousInsn(toStringInsn, boundaryLabels);
+        while (isStringBuilderInvocation(insn, INVOKEVIRTUAL, "append")) {
+            var argumentTypes = Type.getArgumentTypes(((MethodInsnNode) insn).desc);
+            var operandInsn = getPreviousInsn(insn, boundaryLabels);
+            var part = argumentTypes.length == 1 ? getConstantAsString(operandInsn, argumentTypes[0]) : null;
+            if (part == null) {
+                return null;
+            }
+            parts.addFirst(part);
+            operandInsns.add(insn);
+            operandInsns.add(operandInsn);
+            insn = getPreviousInsn(operandInsn, boundaryLabels);
+        }
+
+        if (!isStringBuilderInvocation(insn, INVOKESPECIAL, "<init>")) {
+            return null;
+        }
+        operandInsns.add(insn);
+        var constructorDescriptor = ((MethodInsnNode) insn).desc;
+        if (!constructorDescriptor.equals("()V")) {
+            var operandInsn = getPreviousInsn(insn, boundaryLabels);
+            if (constructorDescriptor.equals("(Ljava/lang/String;)V")
+                || constructorDescriptor.equals("(Ljava/lang/CharSequence;)V")
+            ) {
+                var part = getStringConstant(operandInsn);
+                if (part == null) {
+                    return null;
+                }
+                parts.addFirst(part);
+            } else if (!constructorDescriptor.equals("(I)V") || getIntConstant(operandInsn) == null) {
+                return null;
+            }
+            operandInsns.add(operandInsn);
+            insn = operandInsn;
+        }
+
+        var dupInsn = getPreviousInsn(insn, boundaryLabels);
+        var newInsn = getPreviousInsn(dupInsn, boundaryLabels);
+        if (dupInsn == null
+            || dupInsn.getOpcode() != DUP
+            || newInsn == null
+            || newInsn.getOpcode() != NEW
+            || !((TypeInsnNode) newInsn).desc.equals(STRING_BUILDER_INTERNAL_NAME)
+        ) {
+            return null;
+        }
+        operandInsns.add(dupInsn);
+        operandInsns.add(newInsn);
+
+        return String.join("", parts);
+    }
+
+    private static boolean isStringBuilderInvocation(@Nullable AbstractInsnNode insn, int opcode, String name) {
+        if (insn == null || insn.getOpcode() != opcode) {
+            return false;
+        }
+
+        var methodInsn = (MethodInsnNode) insn;
+        return methodInsn.owner.equals(STRING_BUILDER_INTERNAL_NAME)
+            && methodInsn.name.equals(name);
+    }
+
+    /**
+     * Converts the constant pushed by the instruction to a string, the same way as string concatenation does.
+     *
+     * @return the string, or {@code null} if the instruction doesn't push a constant of the type
+     */
+    @Nullable
+    @SuppressWarnings("java:S1541")
+    private static String getConstantAsString(@Nullable AbstractInsnNode insn, Type type) {
+        switch (type.getSort()) {
+            case Type.OBJECT:
+                return getStringConstant(insn);
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT: {
+                var value = getIntConstant(insn);
+                return value != null ? String.valueOf(value) : null;
+            }
+            case Type.CHAR: {
+                var value = getIntConstant(insn);
+                return value != null ? String.valueOf((char) value.intValue()) : null;
+            }
+            case Type.BOOLEAN: {
+                var value = getIntConstant(insn);
+                return value != null ? String.valueOf(value != 0) : null;
+            }
+            case Type.LONG: {
+                var value = getLongConstant(insn);
+                return value != null ? String.valueOf(value) : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.hash.Hashing.sha256;
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import lombok.SneakyThrows;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.junit.jupiter.api.Test;
+
+class ArchiveProcessorTest {
+
+    private static final String PROCESSED_ENTRY_NAME = toEntryName(Processed.class);
+    private static final String NOT_PROCESSED_ENTRY_NAME = toEntryName(NotProcessed.class);
+    private static final String RESOURCE_ENTRY_NAME = "resource.txt";
+
+    private static final CompiledProperties PROPERTIES = new CompiledProperties(ImmutableMap.of("key", "value"));
+
+    @Test
+    @SneakyThrows
+    void notChanged() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var sourcePath = fileSystem.getPath("/source.jar");
+            writeArchive(sourcePath, ImmutableMap.of(
+                NOT_PROCESSED_ENTRY_NAME, readClassFile(NotProcessed.class),
+                RESOURCE_ENTRY_NAME, "resource".getBytes(UTF_8)
+            ));
+
+            var targetPath = fileSystem.getPath("/target.jar");
+            assertFalse(process(sourcePath, targetPath));
+
+            assertArrayEquals(readAllBytes(sourcePath), readAllBytes(targetPath));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void changed() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var sourcePath = fileSystem.getPath("/source.jar");
+            writeArchive(sourcePath, ImmutableMap.of(
+                NOT_PROCESSED_ENTRY_NAME, readClassFile(NotProcessed.class),
+                PROCESSED_ENTRY_NAME, readClassFile(Processed.class),
+                RESOURCE_ENTRY_NAME, "resource".getBytes(UTF_8)
+            ));
+
+            assertTrue(process(sourcePath, sourcePath));
+
+            var entries = readArchive(sourcePath);
+            assertEquals(
+                ImmutableSet.of(NOT_PROCESSED_ENTRY_NAME, PROCESSED_ENTRY_NAME, RESOURCE_ENTRY_NAME),
+                entries.keySet()
+            );
+            assertArrayEquals(readClassFile(NotProcessed.class), entries.get(NOT_PROCESSED_ENTRY_NAME));
+            assertArrayEquals("resource".getBytes(UTF_8), entries.get(RESOURCE_ENTRY_NAME));
+
+            var processedBytecode = requireNonNull(entries.get(PROCESSED_ENTRY_NAME));
+            assertTrue(new String(processedBytecode, UTF_8).contains("value"));
+            assertNull(newClassFileProcessor().process(processedBytecode), "nothing left to process");
+        }
+    }
+
+
+    @Test
+    @SneakyThrows
+    void prefixIsKept() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var prefix = "#!/bin/sh\nexit 0\n".getBytes(UTF_8);
+            var sourcePath = fileSystem.getPath("/source.jar");
+            writeArchive(sourcePath, prefix, ImmutableMap.of(
+                PROCESSED_ENTRY_NAME, readClassFile(Processed.class)
+            ));
+
+            assertTrue(process(sourcePath, sourcePath));
+
+            var bytes = readAllBytes(sourcePath);
+            assertArrayEquals(prefix, Arrays.copyOf(bytes, prefix.length));
+            var entries = readArchive(Arrays.copyOfRange(bytes, prefix.length, bytes.length));
+            assertEquals(ImmutableSet.of(PROCESSED_ENTRY_NAME), entries.keySet());
+        }
+    }
+
+
+    @Test
+    @SneakyThrows
+    void propertyResourcesAreAdded() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var sourcePath = fileSystem.getPath("/source.jar");
+            writeArchive(sourcePath, ImmutableMap.of(
+                toEntryName(ProcessedWithResource.class), readClassFile(ProcessedWithResource.class)
+            ));
+
+            assertTrue(process(sourcePath, sourcePath));
+
+            var entries = readArchive(sourcePath);
+            var resourceEntryName = PropertyResources.RESOURCES_DIR + '/' + sha256().hashString("value", UTF_8);
+            assertEquals(
+                ImmutableSet.of(toEntryName(ProcessedWithResource.class), resourceEntryName),
+                entries.keySet()
+            );
+            assertArrayEquals("value".getBytes(UTF_8), entries.get(resourceEntryName));
+        }
+    }
+
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Processed {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getStringProperty("key");
+        }
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class ProcessedWithResource {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getBytesProperty("key");
+        }
+    }
+
+    private static class NotProcessed {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return "value";
+        }
+    }
+
+
+    private static boolean process(Path sourcePath, Path targetPath) {
+        var classHierarchyResolver = ClassHierarchyResolver.forClassLoader(ArchiveProcessorTest.class.getClassLoader());
+        var metrics = new ProcessingMetrics();
+        var options = ClassFileProcessingOptions.DEFAULT;
+        return new ArchiveProcessor(PROPERTIES, classHierarchyResolver, metrics, options)
+            .process(sourcePath, targetPath);
+    }
+
+    private static ClassFileProcessor newClassFileProcessor() {
+        var classHierarchyResolver = ClassHierarchyResolver.forClassLoader(ArchiveProcessorTest.class.getClassLoader());
+        var metrics = new ProcessingMetrics();
+        var options = ClassFileProcessingOptions.DEFAULT;
+        var propertyResources = new PropertyResources();
+        return new ClassFileProcessor(
+            PROPERTIES,
+            classHierarchyResolver,
+            metrics,
+            options,
+            propertyResources,
+            null,
+            null
+        );
+    }
+
+    private static String toEntryName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    @SneakyThrows
+    private static byte[] readClassFile(Class<?> clazz) {
+        try (var in = clazz.getResourceAsStream('/' + toEntryName(clazz))) {
+            assertNotNull(in);
+            return in.readAllBytes();
+        }
+    }
+
+    @SneakyThrows
+    private static void writeArchive(Path path, Map<String, byte[]> entries) {
+        try (var out = new ZipOutputStream(newOutputStream(path))) {
+            for (var entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Writes an archive preceded by the prefix, with offsets counted from the beginning of the file.
+     */
+    @SneakyThrows
+    private static void writeArchive(Path path, byte[] prefix, Map<String, byte[]> entries) {
+        var bytesOut = new ByteArrayOutputStream();
+        try (var out = new ZipOutputStream(bytesOut)) {
+            for (var entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+
+        var archive = ByteBuffer.wrap(bytesOut.toByteArray()).order(LITTLE_ENDIAN);
+        var endRecordPos = archive.capacity() - 22;
+        var centralDirectoryOffset = archive.getInt(endRecordPos + 16);
+        var pos = centralDirectoryOffset;
+        for (int i = 0; i < entries.size(); ++i) {
+            archive.putInt(pos + 42, archive.getInt(pos + 42) + prefix.length);
+            pos += 46 + archive.getShort(pos + 28) + archive.getShort(pos + 30) + archive.getShort(pos + 32);
+        }
+        archive.putInt(endRecordPos + 16, centralDirectoryOffset + prefix.length);
+
+        try (var out = newOutputStream(path)) {
+            out.write(prefix);
+            out.write(archive.array());
+        }
+    }
+
+    @SneakyThrows
+    private static Map<String, byte[]> readArchive(Path path) {
+        return readArchive(readAllBytes(path));
+    }
+
+    @SneakyThrows
+    private static Map<String, byte[]> readArchive(byte[] bytes) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (var in = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            for (var entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+}
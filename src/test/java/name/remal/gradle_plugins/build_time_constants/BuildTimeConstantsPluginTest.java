@@ -13,6 +13,7 @@ import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.WriteProperties;
 import org.gradle.api.tasks.compile.AbstractCompile;
 import org.junit.jupiter.api.BeforeEach;
@@ -57,6 +58,43 @@ class BuildTimeConstantsPluginTest {
         public abstract RegularFileProperty getOutputFile();
     }
 
+    @Test
+    void separateTasks() {
+        var extension = project.getExtensions().getByType(BuildTimeConstantsExtension.class);
+        extension.getProcessInSeparateTasks().set(true);
+
+        var sourceSet = project.getExtensions().getByType(SourceSetContainer.class).getByName("main");
+        var compileJava = project.getTasks().named("compileJava", AbstractCompile.class).get();
+        var inlineTask = project.getTasks().named("inlineBuildTimeConstantsJava", InlineBuildTimeConstants.class).get();
+
+        assertThat(inlineTask.getClassesDirectory().get())
+            .isEqualTo(compileJava.getDestinationDirectory().get());
+        assertThat(inlineTask.getDestinationDirectory().get())
+            .isEqualTo(sourceSet.getJava().getDestinationDirectory().get())
+            .isNotEqualTo(compileJava.getDestinationDirectory().get());
+        assertThat(sourceSet.getJava().getClassesDirectory().get())
+            .isEqualTo(inlineTask.getDestinationDirectory().get());
+        assertThat(sourceSet.getOutput().getClassesDirs().getBuildDependencies().getDependencies(null))
+            .contains(inlineTask);
+    }
+
+    @Test
+    void separateTasksDisabled() {
+        var sourceSet = project.getExtensions().getByType(SourceSetContainer.class).getByName("main");
+        var compileJava = project.getTasks().named("compileJava", AbstractCompile.class).get();
+        var inlineTask = project.getTasks().named("inlineBuildTimeConstantsJava", InlineBuildTimeConstants.class).get();
+
+        assertThat(inlineTask.getClassesDirectory().isPresent()).isFalse();
+        assertThat(inlineTask.getDestinationDirectory().isPresent()).isFalse();
+        assertThat(compileJava.getDestinationDirectory().get())
+            .isEqualTo(sourceSet.getJava().getDestinationDirectory().get());
+        assertThat(sourceSet.getJava().getClassesDirectory().get())
+            .isEqualTo(compileJava.getDestinationDirectory().get());
+        assertThat(sourceSet.getOutput().getClassesDirs().getBuildDependencies().getDependencies(null))
+            .contains(compileJava)
+            .doesNotContain(inlineTask);
+    }
+
     @Test
     void pluginTasksDoNotHavePropertyProblems() {
         executeAfterEvaluateActions(project);
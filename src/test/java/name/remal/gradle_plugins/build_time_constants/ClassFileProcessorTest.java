@@ -1,13 +1,26 @@
 package name.remal.gradle_plugins.build_time_constants;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.COMPACT;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.ORDERED;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.LAZY;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.OWNING_CLASS;
 import static name.remal.gradle_plugins.toolkit.reflection.ReflectionUtils.packageNameOf;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.objectweb.asm.Type.getDescriptor;
 import static org.objectweb.asm.Type.getInternalName;
 
 import com.google.common.collect.ImmutableMap;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.SneakyThrows;
 import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
@@ -163,6 +176,15 @@ class ClassFileProcessorTest extends ClassFileProcessorTestUtils {
             ))
         );
 
+        var largeValue = "\u0430".repeat(30_000);
+        assertEquals(
+            largeValue,
+            processAndCallTestMethod(GetStringProperty.class, ImmutableMap.of(
+                "key", largeValue
+            )),
+            "values that don't fit into the constant pool are read from resources"
+        );
+
         assertThrows(
             BuildTimeConstantsException.class,
             () -> processAndCallTestMethod(GetStringProperty.class)
@@ -178,6 +200,70 @@ class ClassFileProcessorTest extends ClassFileProcessorTestUtils {
     }
 
 
+    @Test
+    void getLargeStringProperty() {
+        assertEquals(
+            "value",
+            processAndCallTestMethod(GetLargeStringProperty.class, ImmutableMap.of(
+                "key", "value"
+            ))
+        );
+
+        assertThrows(
+            BuildTimeConstantsException.class,
+            () -> processAndCallTestMethod(GetLargeStringProperty.class)
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetLargeStringProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getLargeStringProperty("key");
+        }
+    }
+
+
+    @Test
+    void getBytesProperty() {
+        var result = (ByteBuffer) processAndCallTestMethod(GetBytesProperty.class, ImmutableMap.of(
+            "key", "value"
+        ));
+        assertTrue(result.isReadOnly());
+        assertEquals(ByteBuffer.wrap("value".getBytes(UTF_8)), result);
+
+        assertThrows(
+            BuildTimeConstantsException.class,
+            () -> processAndCallTestMethod(GetBytesProperty.class)
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetBytesProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            var buffer = BuildTimeConstants.getBytesProperty("key");
+            buffer.get();
+            return BuildTimeConstants.getBytesProperty("key");
+        }
+    }
+
+    @Test
+    void resourceStreamIsClosedIfReadingFails() {
+        var classNode = processClass(
+            GetBytesProperty.class,
+            ImmutableMap.of("key", "value"),
+            ClassFileProcessingOptions.DEFAULT
+        );
+        var readingMethod = classNode.methods.stream()
+            .filter(method -> method.name.equals("$readBuildTimeConstantsResource"))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(1, readingMethod.tryCatchBlocks.size());
+        assertNull(readingMethod.tryCatchBlocks.get(0).type, "the stream is closed on any exception");
+    }
+
+
     @Test
     void getIntegerProperty() {
         newKeyNumbersStream()
@@ -280,6 +366,76 @@ class ClassFileProcessorTest extends ClassFileProcessorTestUtils {
         }
     }
 
+    @Test
+    void getEnumProperty() {
+        assertSame(
+            TestMode.SAFE,
+            processAndCallTestMethod(GetEnumProperty.class, ImmutableMap.of(
+                "key", "SAFE"
+            ))
+        );
+
+        assertThrows(
+            BuildTimeConstantsException.class,
+            () -> processAndCallTestMethod(GetEnumProperty.class, ImmutableMap.of(
+                "key", "safe"
+            ))
+        );
+
+        assertThrows(
+            BuildTimeConstantsException.class,
+            () -> processAndCallTestMethod(GetEnumProperty.class)
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetEnumProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getEnumProperty(TestMode.class, "key");
+        }
+    }
+
+    /**
+     * Public, as the processed class is loaded by another class loader.
+     */
+    public enum TestMode {
+        FAST,
+        SAFE,
+    }
+
+    @Test
+    void getBooleanPropertyInBranches() {
+        assertEquals(
+            "yes:2",
+            processAndCallTestMethod(GetBooleanPropertyInBranches.class, ImmutableMap.of(
+                "key", "true",
+                "count", "2"
+            ))
+        );
+
+        assertEquals(
+            "no:3",
+            processAndCallTestMethod(GetBooleanPropertyInBranches.class, ImmutableMap.of(
+                "key", "false",
+                "count", "3"
+            ))
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetBooleanPropertyInBranches {
+        @SuppressWarnings("unused")
+        static Object test() {
+            var prefix = BuildTimeConstants.getBooleanProperty("key") ? "yes" : "no";
+            var count = 0;
+            for (int i = 0; i < BuildTimeConstants.getIntegerProperty("count"); ++i) {
+                ++count;
+            }
+            return prefix + ':' + count;
+        }
+    }
+
 
     @Test
     @SuppressWarnings("unchecked")
@@ -556,4 +712,176 @@ class ClassFileProcessorTest extends ClassFileProcessorTestUtils {
         }
     }
 
+
+    @Test
+    void getStringListProperty() {
+        var result = processAndCallTestMethod(GetStringListProperty.class, ImmutableMap.of(
+            "key", "a, b ,c"
+        ));
+        assertEquals(List.of("a", "b", "c"), result);
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) result).clear());
+
+        assertEquals(
+            List.of(),
+            processAndCallTestMethod(GetStringListProperty.class, ImmutableMap.of(
+                "key", ""
+            ))
+        );
+
+        assertEquals(
+            List.of("a"),
+            processAndCallTestMethod(
+                GetStringListProperty.class,
+                ImmutableMap.of("key", "a"),
+                new ClassFileProcessingOptions(ORDERED, LAZY, false, false)
+            )
+        );
+
+        assertEquals(
+            List.of("a", "b"),
+            processAndCallTestMethod(
+                GetStringListProperty.class,
+                ImmutableMap.of("key", "a,b"),
+                ClassFileProcessingOptions.DEFAULT,
+                new SharedPropertyMaps("test")
+            )
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetStringListProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getStringListProperty("key");
+        }
+    }
+
+    @Test
+    void getIntArrayProperty() {
+        var properties = ImmutableMap.of("key", "1, 0, -2, 100000");
+        var expected = new int[]{1, 0, -2, 100000};
+        assertArrayEquals(expected, (int[]) processAndCallTestMethod(GetIntArrayProperty.class, properties));
+        assertArrayEquals(expected, (int[]) processAndCallTestMethod(
+            GetIntArrayProperty.class,
+            properties,
+            new ClassFileProcessingOptions(ORDERED, LAZY, false, false)
+        ));
+        assertArrayEquals(expected, (int[]) processAndCallTestMethod(
+            GetIntArrayProperty.class,
+            properties,
+            ClassFileProcessingOptions.DEFAULT,
+            new SharedPropertyMaps("test")
+        ));
+
+        assertArrayEquals(
+            new int[0],
+            (int[]) processAndCallTestMethod(GetIntArrayProperty.class, ImmutableMap.of(
+                "key", " "
+            ))
+        );
+
+        assertThrows(
+            BuildTimeConstantsException.class,
+            () -> processAndCallTestMethod(GetIntArrayProperty.class, ImmutableMap.of(
+                "key", "1,a"
+            ))
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetIntArrayProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            // every invocation returns a copy, so modifications are not visible
+            var copy = BuildTimeConstants.getIntArrayProperty("key");
+            Arrays.fill(copy, Integer.MIN_VALUE);
+            return BuildTimeConstants.getIntArrayProperty("key");
+        }
+    }
+
+    @Test
+    void getLongArrayProperty() {
+        assertArrayEquals(
+            new long[]{1, Long.MAX_VALUE, 0},
+            (long[]) processAndCallTestMethod(GetLongArrayProperty.class, ImmutableMap.of(
+                "key", "1," + Long.MAX_VALUE + ",0"
+            ))
+        );
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class GetLongArrayProperty {
+        @SuppressWarnings("unused")
+        static Object test() {
+            var copy = BuildTimeConstants.getLongArrayProperty("key");
+            Arrays.fill(copy, Long.MIN_VALUE);
+            return BuildTimeConstants.getLongArrayProperty("key");
+        }
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void orderedPropertyMap() {
+        var properties = createIntegerProperties(12);
+        var result = (Map<Object, Object>) processAndCallTestMethod(GetIntegerProperties.class, properties);
+        assertThrows(UnsupportedOperationException.class, () -> result.put("test", "test"));
+        assertEquals(List.copyOf(properties.keySet()), List.copyOf(result.keySet()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compactPropertyMap() {
+        var options = new ClassFileProcessingOptions(COMPACT, OWNING_CLASS, false, false);
+        for (var size : List.of(2, 10, 11, 12)) {
+            var properties = createIntegerProperties(size);
+            var result = (Map<Object, Object>) processAndCallTestMethod(
+                GetIntegerProperties.class,
+                properties,
+                options
+            );
+            assertThrows(UnsupportedOperationException.class, () -> result.put("test", "test"));
+            Map<Object, Object> expected = new LinkedHashMap<>();
+            properties.forEach((key, value) -> expected.put(key, Integer.parseInt(value)));
+            assertEquals(expected, result);
+            assertEquals("java.util.ImmutableCollections", result.getClass().getEnclosingClass().getName());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sharedPropertyMap() {
+        var properties = createIntegerProperties(3);
+        var sharedPropertyMaps = new SharedPropertyMaps("test");
+        var result = (Map<Object, Object>) processAndCallTestMethod(
+            GetIntegerProperties.class,
+            properties,
+            ClassFileProcessingOptions.DEFAULT,
+            sharedPropertyMaps
+        );
+        assertThrows(UnsupportedOperationException.class, () -> result.put("test", "test"));
+        assertEquals(List.copyOf(properties.keySet()), List.copyOf(result.keySet()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lazyPropertyMap() {
+        var properties = createIntegerProperties(3);
+        var result = (Map<Object, Object>) processAndCallTestMethod(
+            GetIntegerProperties.class,
+            properties,
+            new ClassFileProcessingOptions(ORDERED, LAZY, false, false)
+        );
+        assertThrows(UnsupportedOperationException.class, () -> result.put("test", "test"));
+        assertEquals(List.copyOf(properties.keySet()), List.copyOf(result.keySet()));
+    }
+
+    private static Map<String, String> createIntegerProperties(int size) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (int i = size; i >= 1; --i) {
+            properties.put("key." + i, String.valueOf(i));
+        }
+        return properties;
+    }
+
 }
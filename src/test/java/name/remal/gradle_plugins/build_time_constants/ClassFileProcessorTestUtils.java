@@ -28,6 +28,9 @@ import java.util.stream.LongStream;
 import lombok.SneakyThrows;
 import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.parallel.Execution;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 
 @Execution(SAME_THREAD)
 abstract class ClassFileProcessorTestUtils {
@@ -36,11 +39,29 @@ abstract class ClassFileProcessorTestUtils {
         return processAndCallTestMethod(clazz, emptyMap());
     }
 
-    @SneakyThrows
     protected final Object processAndCallTestMethod(Class<?> clazz, Map<String, String> properties) {
+        return processAndCallTestMethod(clazz, properties, ClassFileProcessingOptions.DEFAULT);
+    }
+
+    protected final Object processAndCallTestMethod(
+        Class<?> clazz,
+        Map<String, String> properties,
+        ClassFileProcessingOptions options
+    ) {
+        return processAndCallTestMethod(clazz, properties, options, null);
+    }
+
+    @SneakyThrows
+    protected final Object processAndCallTestMethod(
+        Class<?> clazz,
+        Map<String, String> properties,
+        ClassFileProcessingOptions options,
+        @Nullable SharedPropertyMaps sharedPropertyMaps
+    ) {
         try (
             var fileSystem = Jimfs.newFileSystem(unix());
-            var classLoader = new CurrentFileSystemClassLoader()
+            var classLoader = new CurrentFileSystemClassLoader();
+            var classHierarchyResolver = ClassHierarchyResolver.forClassLoader(classLoader)
         ) {
             currentFileSystem.set(fileSystem);
 
@@ -48,7 +69,23 @@ abstract class ClassFileProcessorTestUtils {
             var bytecodeUrl = requireNonNull(clazz.getResource(bytecodePath));
             var sourcePath = Paths.get(bytecodeUrl.toURI());
             var targetPath = fileSystem.getPath(bytecodePath);
-            new ClassFileProcessor(sourcePath, targetPath, properties, classLoader).process();
+            var metrics = new ProcessingMetrics();
+            var compiledProperties = new CompiledProperties(properties);
+            var propertyResources = new PropertyResources();
+            var processor = new ClassFileProcessor(
+                compiledProperties,
+                classHierarchyResolver,
+                metrics,
+                options,
+                propertyResources,
+                sharedPropertyMaps,
+                null
+            );
+            processor.process(sourcePath, targetPath);
+            propertyResources.writeTo(fileSystem.getPath("/"), metrics);
+            if (sharedPropertyMaps != null) {
+                sharedPropertyMaps.writeTo(fileSystem.getPath("/"), metrics);
+            }
 
             if (!exists(targetPath)) {
                 throw new ClassNotChangedException();
@@ -70,6 +107,49 @@ abstract class ClassFileProcessorTestUtils {
     protected static final class ClassNotChangedException extends RuntimeException {
     }
 
+    /**
+     * Processes the class and returns its processed {@code test} method, without loading the class.
+     */
+    protected static MethodNode processTestMethod(
+        Class<?> clazz,
+        Map<String, String> properties,
+        ClassFileProcessingOptions options
+    ) {
+        return processClass(clazz, properties, options).methods.stream()
+            .filter(method -> method.name.equals("test"))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    /**
+     * Processes the class and returns the processed class, without loading it.
+     */
+    @SneakyThrows
+    protected static ClassNode processClass(
+        Class<?> clazz,
+        Map<String, String> properties,
+        ClassFileProcessingOptions options
+    ) {
+        byte[] bytecode;
+        var resourceName = '/' + clazz.getName().replace('.', '/') + ".class";
+        try (var in = requireNonNull(clazz.getResourceAsStream(resourceName))) {
+            bytecode = in.readAllBytes();
+        }
+
+        var processor = new ClassFileProcessor(
+            new CompiledProperties(properties),
+            ClassHierarchyResolver.forClassLoader(clazz.getClassLoader()),
+            new ProcessingMetrics(),
+            options,
+            new PropertyResources(),
+            null,
+            null
+        );
+        var classNode = new ClassNode();
+        new ClassReader(requireNonNull(processor.process(bytecode))).accept(classNode, 0);
+        return classNode;
+    }
+
 
     protected static LongStream newKeyNumbersStream() {
         SortedSet<Long> result = new TreeSet<>();
@@ -0,0 +1,65 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.ClassFileProcessorUtils.processClassFiles;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ClassFileProcessorUtilsTest {
+
+    @Test
+    void filesAreProcessedByUpToParallelismThreadsOfSharedPool() {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            paths.add(Paths.get("Class" + i + ".class"));
+        }
+
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            Set<Path> processedPaths = ConcurrentHashMap.newKeySet();
+            var running = new AtomicInteger();
+            var maxRunning = new AtomicInteger();
+            processClassFiles(paths, 2, pool, path -> {
+                var current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                processedPaths.add(path);
+                running.decrementAndGet();
+            });
+
+            assertEquals(Set.copyOf(paths), processedPaths);
+            assertTrue(maxRunning.get() <= 2, "max running: " + maxRunning.get());
+
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void firstFailureInPathOrderIsThrown() {
+        var paths = List.of(Paths.get("b"), Paths.get("a"), Paths.get("c"));
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var exception = assertThrows(IllegalStateException.class, () ->
+                processClassFiles(paths, 3, pool, path -> {
+                    throw new IllegalStateException(path.toString());
+                })
+            );
+            assertEquals("a", exception.getMessage());
+            assertEquals(2, exception.getSuppressed().length);
+
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
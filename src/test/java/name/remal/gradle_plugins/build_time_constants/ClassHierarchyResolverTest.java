@@ -0,0 +1,54 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+class ClassHierarchyResolverTest {
+
+    @Test
+    @SneakyThrows
+    void getCommonSuperClass() {
+        try (var resolver = ClassHierarchyResolver.forClasspath(emptyList(), null)) {
+            assertEquals(
+                "java/lang/Number",
+                resolver.getCommonSuperClass("java/lang/Integer", "java/lang/Long")
+            );
+            assertEquals(
+                "java/util/AbstractList",
+                resolver.getCommonSuperClass("java/util/ArrayList", "java/util/AbstractSequentialList")
+            );
+            assertEquals(
+                "java/util/AbstractList",
+                resolver.getCommonSuperClass("java/util/AbstractList", "java/util/ArrayList")
+            );
+            assertEquals(
+                "java/util/List",
+                resolver.getCommonSuperClass("java/util/List", "java/util/ArrayList")
+            );
+            assertEquals(
+                "java/lang/Object",
+                resolver.getCommonSuperClass("java/util/List", "java/util/HashSet")
+            );
+            assertEquals(
+                "java/lang/Object",
+                resolver.getCommonSuperClass("java/lang/String", "java/lang/Integer")
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void unknownClass() {
+        try (var resolver = ClassHierarchyResolver.forClasspath(emptyList(), null)) {
+            assertThrows(
+                TypeNotPresentException.class,
+                () -> resolver.getCommonSuperClass("unknown/Unknown", "java/lang/String")
+            );
+        }
+    }
+
+}
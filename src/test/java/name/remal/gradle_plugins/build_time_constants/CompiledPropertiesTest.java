@@ -0,0 +1,85 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.CompiledProperties.matchesPropertyNamePattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompiledPropertiesTest {
+
+    private final CompiledProperties properties = new CompiledProperties(ImmutableMap.of(
+        "b.2", "2",
+        "a", "0",
+        "b.1", "1",
+        "b", "3",
+        "c.1", "not a number"
+    ));
+
+    @Test
+    void getValue() {
+        assertEquals(2, properties.getValue("b.2", int.class, Integer::parseInt));
+        assertEquals("2", properties.getValue("b.2", String.class, String::valueOf));
+
+        var exception = assertThrows(
+            IllegalStateException.class,
+            () -> properties.getValue("c.1", int.class, Integer::parseInt)
+        );
+        assertEquals("Property 'c.1' is not int", exception.getMessage());
+
+        exception = assertThrows(
+            IllegalStateException.class,
+            () -> properties.getValue("unknown", int.class, Integer::parseInt)
+        );
+        assertEquals("Property 'unknown' is not set", exception.getMessage());
+    }
+
+    @Test
+    void getValuesByPattern() {
+        var values = properties.getValuesByPattern("b.*", int.class, Integer::parseInt);
+        assertEquals(List.of("b.2", "b.1"), List.copyOf(values.keySet()), "order of properties is kept");
+        assertEquals(List.of(2, 1), List.copyOf(values.values()));
+
+        assertSame(values, properties.getValuesByPattern("b.*", int.class, Integer::parseInt), "memoized");
+
+        assertEquals(
+            List.of("b.2", "a", "b.1", "b", "c.1"),
+            List.copyOf(properties.getValuesByPattern("*", String.class, String::valueOf).keySet())
+        );
+        assertEquals(
+            List.of("b"),
+            List.copyOf(properties.getValuesByPattern("b", String.class, String::valueOf).keySet())
+        );
+        assertEquals(
+            List.of("b.1", "c.1"),
+            List.copyOf(properties.getValuesByPattern("*.1", String.class, String::valueOf).keySet())
+        );
+        assertTrue(properties.getValuesByPattern("d*", String.class, String::valueOf).isEmpty());
+
+        assertThrows(
+            IllegalStateException.class,
+            () -> properties.getValuesByPattern("c*", int.class, Integer::parseInt)
+        );
+    }
+
+    @Test
+    void matchesPattern() {
+        assertTrue(matchesPropertyNamePattern("a.b", "a.b"));
+        assertFalse(matchesPropertyNamePattern("a.b", "a-b"));
+        assertTrue(matchesPropertyNamePattern("*", ""));
+        assertTrue(matchesPropertyNamePattern("a*", "a"));
+        assertTrue(matchesPropertyNamePattern("a*c", "abc"));
+        assertFalse(matchesPropertyNamePattern("a*c", "abcd"));
+        assertTrue(matchesPropertyNamePattern("a*b*c", "abc"));
+        assertTrue(matchesPropertyNamePattern("a*b*c", "a-b-b-c"));
+        assertFalse(matchesPropertyNamePattern("a*b*c", "ac"));
+        assertFalse(matchesPropertyNamePattern("ab*bc", "abc"));
+        assertTrue(matchesPropertyNamePattern("a**", "abc"));
+    }
+
+}
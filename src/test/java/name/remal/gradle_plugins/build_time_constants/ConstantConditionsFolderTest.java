@@ -0,0 +1,89 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.ORDERED;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.OWNING_CLASS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.objectweb.asm.Opcodes.ATHROW;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.junit.jupiter.api.Test;
+
+class ConstantConditionsFolderTest extends ClassFileProcessorTestUtils {
+
+    private static final ClassFileProcessingOptions OPTIONS = new ClassFileProcessingOptions(
+        ORDERED,
+        OWNING_CLASS,
+        true,
+        false
+    );
+
+    @Test
+    void disabledBranchesAreRemoved() {
+        var properties = ImmutableMap.of(
+            "debug", "false",
+            "level", "3",
+            "size", "10"
+        );
+        assertEquals(
+            List.of("not debug", "level > 2", "size >= 10"),
+            processAndCallTestMethod(Branches.class, properties, OPTIONS)
+        );
+
+        var method = processTestMethod(Branches.class, properties, OPTIONS);
+        assertTrue(method.tryCatchBlocks.isEmpty(), "try-catch blocks of removed code are removed");
+        assertTrue(
+            method.localVariables.stream().noneMatch(local -> local.name.equals("message")),
+            "local variables of removed code are removed"
+        );
+        for (var insn : method.instructions) {
+            assertTrue(insn.getOpcode() != ATHROW, "removed code is not reachable");
+        }
+    }
+
+    @Test
+    void enabledBranchesAreKept() {
+        var properties = ImmutableMap.of(
+            "debug", "true",
+            "level", "1",
+            "size", "1"
+        );
+        assertEquals(
+            List.of("debug"),
+            processAndCallTestMethod(Branches.class, properties, OPTIONS)
+        );
+
+        var method = processTestMethod(Branches.class, properties, OPTIONS);
+        assertEquals(1, method.tryCatchBlocks.size());
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Branches {
+        @SuppressWarnings({"unused", "java:S1181"})
+        static Object test() {
+            List<String> result = new ArrayList<>();
+            if (BuildTimeConstants.getBooleanProperty("debug")) {
+                var message = "debug";
+                try {
+                    result.add(message);
+                } catch (RuntimeException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            if (!BuildTimeConstants.getBooleanProperty("debug")) {
+                result.add("not debug");
+            }
+            if (BuildTimeConstants.getIntegerProperty("level") > 2) {
+                result.add("level > 2");
+            }
+            if (BuildTimeConstants.getLongProperty("size") >= 10) {
+                result.add("size >= 10");
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.list;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.setLastModifiedTime;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.hasContent;
+import static name.remal.gradle_plugins.build_time_constants.FileUtils.writeIfChanged;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.attribute.FileTime;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+class FileUtilsTest {
+
+    @Test
+    @SneakyThrows
+    void contentIsWrittenOnlyIfChanged() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var path = fileSystem.getPath("/classes/pkg/Test.class");
+            var content = "content".getBytes(UTF_8);
+
+            assertTrue(writeIfChanged(path, content), "new file is written");
+            assertArrayEquals(content, readAllBytes(path));
+
+            var lastModifiedTime = FileTime.fromMillis(1_000_000);
+            setLastModifiedTime(path, lastModifiedTime);
+            assertFalse(writeIfChanged(path, content.clone()), "file with the same content is not written");
+            assertEquals(lastModifiedTime, getLastModifiedTime(path));
+
+            var sameSizeContent = "CONTENT".getBytes(UTF_8);
+            assertTrue(writeIfChanged(path, sameSizeContent), "file with different content is written");
+            assertArrayEquals(sameSizeContent, readAllBytes(path));
+
+            try (var paths = list(path.getParent())) {
+                assertEquals(1L, paths.count(), "temporary files are removed");
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void contentIsCompared() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var path = fileSystem.getPath("/file.bin");
+            var content = new byte[20_000];
+            for (int i = 0; i < content.length; ++i) {
+                content[i] = (byte) i;
+            }
+
+            assertFalse(hasContent(path, content), "not existing file");
+
+            writeIfChanged(path, content);
+            assertTrue(hasContent(path, content.clone()));
+
+            var lastByteChanged = content.clone();
+            ++lastByteChanged[lastByteChanged.length - 1];
+            assertFalse(hasContent(path, lastByteChanged));
+
+            assertFalse(hasContent(path, new byte[content.length - 1]));
+        }
+    }
+
+}
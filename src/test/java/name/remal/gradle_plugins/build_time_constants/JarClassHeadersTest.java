@@ -0,0 +1,35 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+
+class JarClassHeadersTest {
+
+    @Test
+    @SneakyThrows
+    void find() {
+        var jarFile = new File(ClassWriter.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        try (var jar = new JarClassHeaders(jarFile)) {
+            var header = jar.find("org/objectweb/asm/ClassWriter");
+            assertNotNull(header);
+            assertEquals("org/objectweb/asm/ClassVisitor", header.getSuperName());
+
+            assertSame(header, jar.find("org/objectweb/asm/ClassWriter"), "memoized");
+
+            assertNull(jar.find("org/objectweb/asm/Unknown"));
+
+            jar.close();
+            assertThrows(IOException.class, () -> jar.find("org/objectweb/asm/ClassReader"));
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static name.remal.gradle_plugins.build_time_constants.ProcessingMetrics.Phase.PARSING;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.jimfs.Jimfs;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+class ProcessingMetricsTest {
+
+    @Test
+    @SneakyThrows
+    void writeJsonReport() {
+        var metrics = new ProcessingMetrics();
+        metrics.fileVisited();
+        metrics.fileVisited();
+        metrics.classParsed(100);
+        metrics.classRewritten();
+        metrics.classTakenFromCache();
+        metrics.substituted("getStringProperty");
+        metrics.substituted("getStringProperty");
+        metrics.substituted("getClassName");
+        metrics.syntheticMapFieldsAdded(3);
+        metrics.bytesWritten(120);
+        metrics.writeSkipped();
+        metrics.start(PARSING).stop();
+
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var reportPath = fileSystem.getPath("/reports/task.json");
+            metrics.writeJsonReport(reportPath, ":compile\"Java\"");
+
+            var json = new String(readAllBytes(reportPath), UTF_8);
+            assertTrue(json.contains("\"task\": \":compile\\\"Java\\\"\""), json);
+            assertTrue(json.contains("\"filesVisited\": 2,"), json);
+            assertTrue(json.contains("\"classesParsed\": 1,"), json);
+            assertTrue(json.contains("\"classesRewritten\": 1,"), json);
+            assertTrue(json.contains("\"classesTakenFromCache\": 1,"), json);
+            assertTrue(json.contains("\"getClassName\": 1,\n    \"getStringProperty\": 2\n"), json);
+            assertTrue(json.contains("\"syntheticMapFieldsAdded\": 3,"), json);
+            assertTrue(json.contains("\"bytesRead\": 100,"), json);
+            assertTrue(json.contains("\"bytesWritten\": 120,"), json);
+            assertTrue(json.contains("\"writesSkipped\": 1,"), json);
+            assertTrue(json.contains("\"parsing\": {\"wallTimeNanos\": "), json);
+            assertTrue(json.contains("\"writing\": {\"wallTimeNanos\": 0, \"cpuTimeNanos\": 0}"), json);
+        }
+    }
+
+}
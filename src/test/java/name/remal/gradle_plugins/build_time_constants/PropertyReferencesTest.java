@@ -0,0 +1,87 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.write;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.jimfs.Jimfs;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.SneakyThrows;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.junit.jupiter.api.Test;
+
+class PropertyReferencesTest {
+
+    @Test
+    void referencesAreCollected() {
+        var references = new PropertyReferences();
+        references.addClassFile(readClassFile(Usage.class));
+        references.addClassFile(readClassFile(PropertyReferencesTest.class));
+
+        assertEquals(Set.of("version", "unit"), references.getPropertyNames());
+        assertEquals(Set.of("feature.*"), references.getPropertyNamePatterns());
+
+        assertTrue(references.isReferenced("version"));
+        assertTrue(references.isReferenced("unit"));
+        assertTrue(references.isReferenced("feature.a"));
+        assertFalse(references.isReferenced("feature"));
+        assertFalse(references.isReferenced("other"));
+    }
+
+    @Test
+    @SneakyThrows
+    void referencesAreCollectedFromDirectoriesAndArchives() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var classesDir = fileSystem.getPath("/classes");
+            var classFilePath = classesDir.resolve("pkg/Usage.class");
+            createDirectories(classFilePath.getParent());
+            write(classFilePath, readClassFile(Usage.class));
+
+            var dirReferences = new PropertyReferences();
+            dirReferences.addClassesDirectory(classesDir);
+            dirReferences.addClassesDirectory(fileSystem.getPath("/not-existing"));
+            assertEquals(Set.of("version", "unit"), dirReferences.getPropertyNames());
+
+            var archivePath = fileSystem.getPath("/classes.jar");
+            try (var out = new ZipOutputStream(newOutputStream(archivePath))) {
+                out.putNextEntry(new ZipEntry("pkg/"));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("pkg/Usage.class"));
+                out.write(readClassFile(Usage.class));
+                out.closeEntry();
+            }
+
+            var archiveReferences = new PropertyReferences();
+            archiveReferences.addArchive(archivePath);
+            archiveReferences.addArchive(fileSystem.getPath("/not-existing.jar"));
+            assertEquals(Set.of("feature.*"), archiveReferences.getPropertyNamePatterns());
+        }
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Usage {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getStringProperty("version")
+                + BuildTimeConstants.getStringProperties("feature.*")
+                + BuildTimeConstants.getEnumProperty(TimeUnit.class, "unit");
+        }
+    }
+
+    @SneakyThrows
+    private static byte[] readClassFile(Class<?> clazz) {
+        var resourceName = '/' + clazz.getName().replace('.', '/') + ".class";
+        try (var in = requireNonNull(clazz.getResourceAsStream(resourceName))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
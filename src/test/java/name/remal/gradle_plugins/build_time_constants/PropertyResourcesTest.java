@@ -0,0 +1,56 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.Files.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.attribute.FileTime;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+class PropertyResourcesTest {
+
+    @Test
+    void equalContentsAreStoredOnce() {
+        var propertyResources = new PropertyResources();
+        var resourceName = propertyResources.add("a".getBytes(UTF_8));
+        assertEquals(resourceName, propertyResources.add("a".getBytes(UTF_8)));
+        assertNotEquals(resourceName, propertyResources.add("b".getBytes(UTF_8)));
+        assertEquals(2, propertyResources.getResources().size());
+    }
+
+    @Test
+    @SneakyThrows
+    void writeTo() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var outputDirPath = fileSystem.getPath("/output");
+            var propertyResources = new PropertyResources();
+            var resourceName = propertyResources.add("a".getBytes(UTF_8));
+
+            propertyResources.writeTo(outputDirPath, new ProcessingMetrics());
+            var resourcePath = outputDirPath.resolve(resourceName);
+            assertArrayEquals("a".getBytes(UTF_8), readAllBytes(resourcePath));
+
+            var lastModifiedTime = FileTime.fromMillis(1000);
+            setLastModifiedTime(resourcePath, lastModifiedTime);
+            propertyResources.writeTo(outputDirPath, new ProcessingMetrics());
+            assertEquals(
+                lastModifiedTime,
+                getLastModifiedTime(resourcePath),
+                "resources with the same content are not written again"
+            );
+
+            write(resourcePath, "b".getBytes(UTF_8));
+            propertyResources.writeTo(outputDirPath, new ProcessingMetrics());
+            assertArrayEquals("a".getBytes(UTF_8), readAllBytes(resourcePath));
+        }
+    }
+
+}
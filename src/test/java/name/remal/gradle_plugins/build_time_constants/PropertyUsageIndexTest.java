@@ -0,0 +1,73 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import lombok.SneakyThrows;
+import name.remal.gradle_plugins.build_time_constants.PropertyUsageIndex.ClassUsage;
+import org.junit.jupiter.api.Test;
+
+class PropertyUsageIndexTest {
+
+    @Test
+    @SneakyThrows
+    void writeAndRead() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var path = fileSystem.getPath("/index/property-usage.index");
+
+            var index = new PropertyUsageIndex(ImmutableMap.of("key", "value"), "fingerprint");
+            index.put("pkg/Test.class", new ClassUsage(
+                1,
+                2,
+                ImmutableSet.of("key"),
+                ImmutableSet.of("prefix.*"),
+                true
+            ));
+            index.writeTo(path);
+
+            var readIndex = PropertyUsageIndex.readAndDelete(path);
+            assertNotNull(readIndex);
+            assertEquals(ImmutableMap.of("key", "value"), readIndex.getProperties());
+            assertEquals("fingerprint", readIndex.getClasspathFingerprint());
+            assertEquals(index.get("pkg/Test.class"), readIndex.get("pkg/Test.class"));
+
+            assertNull(PropertyUsageIndex.readAndDelete(path));
+        }
+    }
+
+    @Test
+    void getChangedPropertyNames() {
+        var index = new PropertyUsageIndex(ImmutableMap.of(
+            "same", "value",
+            "changed", "value",
+            "removed", "value"
+        ), "");
+
+        assertEquals(
+            ImmutableSet.of("changed", "removed", "added"),
+            index.getChangedPropertyNames(ImmutableMap.of(
+                "same", "value",
+                "changed", "other value",
+                "added", "value"
+            ))
+        );
+    }
+
+    @Test
+    void isAffectedBy() {
+        var usage = new ClassUsage(0, 0, ImmutableSet.of("key"), ImmutableSet.of("prefix.*"), false);
+        assertFalse(usage.isAffectedBy(emptySet()));
+        assertFalse(usage.isAffectedBy(ImmutableSet.of("other")));
+        assertTrue(usage.isAffectedBy(ImmutableSet.of("key")));
+        assertTrue(usage.isAffectedBy(ImmutableSet.of("prefix.name")));
+    }
+
+}
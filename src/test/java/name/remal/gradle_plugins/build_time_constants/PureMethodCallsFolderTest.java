@@ -0,0 +1,140 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapImplementation.ORDERED;
+import static name.remal.gradle_plugins.build_time_constants.PropertyMapStorage.OWNING_CLASS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.objectweb.asm.Opcodes.ATHROW;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+class PureMethodCallsFolderTest extends ClassFileProcessorTestUtils {
+
+    private static final ClassFileProcessingOptions OPTIONS = new ClassFileProcessingOptions(
+        ORDERED,
+        OWNING_CLASS,
+        true,
+        true
+    );
+
+    private static final Map<String, String> PROPERTIES = ImmutableMap.of(
+        "env", "prod",
+        "version", "1.2.3",
+        "build", "42"
+    );
+
+    @Test
+    void invocations() {
+        assertEquals(
+            List.of(true, 5, 43, "1-1.2", 1),
+            processAndCallTestMethod(Invocations.class, PROPERTIES, OPTIONS)
+        );
+
+        var method = processTestMethod(Invocations.class, PROPERTIES, OPTIONS);
+        assertFalse(hasInvocation(method, "java/lang/String"), "String methods invocations are folded");
+        assertFalse(hasInvocation(method, "java/lang/Integer", "parseInt"), "Integer.parseInt() is folded");
+        assertFalse(hasInvocation(method, "java/lang/Math"), "Math methods invocations are folded");
+    }
+
+    @Test
+    void invocationsAreKeptIfDisabled() {
+        var options = new ClassFileProcessingOptions(ORDERED, OWNING_CLASS, false, false);
+        assertEquals(
+            List.of(true, 5, 43, "1-1.2", 1),
+            processAndCallTestMethod(Invocations.class, PROPERTIES, options)
+        );
+
+        var method = processTestMethod(Invocations.class, PROPERTIES, options);
+        assertTrue(hasInvocation(method, "java/lang/String"), "String methods invocations are kept");
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Invocations {
+        @SuppressWarnings("unused")
+        static Object test() {
+            List<Object> result = new ArrayList<>();
+            result.add(BuildTimeConstants.getStringProperty("env").equals("prod"));
+            result.add(BuildTimeConstants.getStringProperty("version").length());
+            result.add(Integer.parseInt(BuildTimeConstants.getStringProperty("build")) + 1);
+            result.add(BuildTimeConstants.getStringProperty("version").substring(0, 1)
+                + "-" + BuildTimeConstants.getStringProperty("version").substring(0, 3)
+            );
+            result.add(Math.min(BuildTimeConstants.getStringProperty("version").indexOf('.'), 2));
+            return result;
+        }
+    }
+
+
+    @Test
+    void foldedConditions() {
+        assertEquals(
+            "prod",
+            processAndCallTestMethod(Conditions.class, PROPERTIES, OPTIONS)
+        );
+
+        var method = processTestMethod(Conditions.class, PROPERTIES, OPTIONS);
+        for (var insn : method.instructions) {
+            assertTrue(insn.getOpcode() != ATHROW, "removed code is not reachable");
+        }
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Conditions {
+        @SuppressWarnings("unused")
+        static Object test() {
+            if (!"prod".equals(BuildTimeConstants.getStringProperty("env"))) {
+                throw new AssertionError("not prod");
+            }
+            return "prod";
+        }
+    }
+
+
+    @Test
+    void failedInvocationIsKept() {
+        var properties = ImmutableMap.of("build", "not a number");
+        assertThrows(
+            NumberFormatException.class,
+            () -> processAndCallTestMethod(FailedInvocation.class, properties, OPTIONS)
+        );
+
+        var method = processTestMethod(FailedInvocation.class, properties, OPTIONS);
+        assertTrue(hasInvocation(method, "java/lang/Integer", "parseInt"), "Integer.parseInt() is kept");
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class FailedInvocation {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return Integer.parseInt(BuildTimeConstants.getStringProperty("build"));
+        }
+    }
+
+
+    private static boolean hasInvocation(MethodNode method, String owner) {
+        return hasInvocation(method, owner, null);
+    }
+
+    private static boolean hasInvocation(MethodNode method, String owner, @Nullable String name) {
+        for (var insn : method.instructions) {
+            if (insn instanceof MethodInsnNode
+                && ((MethodInsnNode) insn).owner.equals(owner)
+                && (name == null || ((MethodInsnNode) insn).name.equals(name))
+            ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
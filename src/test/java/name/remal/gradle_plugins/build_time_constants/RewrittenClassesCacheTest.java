@@ -0,0 +1,164 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newDirectoryStream;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import lombok.SneakyThrows;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.junit.jupiter.api.Test;
+
+class RewrittenClassesCacheTest {
+
+    private static final byte[] BYTECODE = "source".getBytes(UTF_8);
+
+    private static final byte[] REWRITTEN_BYTECODE = "rewritten".getBytes(UTF_8);
+
+    @Test
+    @SneakyThrows
+    void classIsTakenForSameValuesOfUsedProperties() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var cache = new RewrittenClassesCache(fileSystem.getPath("/cache"), Long.MAX_VALUE);
+            var properties = new CompiledProperties(ImmutableMap.of(
+                "version", "1",
+                "feature.a", "true",
+                "other", "value"
+            ));
+            var classKey = cache.getClassKey(BYTECODE, ClassFileProcessingOptions.DEFAULT);
+            assertNull(cache.get(classKey, properties));
+
+            cache.put(classKey, properties, Set.of("version"), Set.of("feature.*"), REWRITTEN_BYTECODE);
+            var cachedClass = cache.get(classKey, properties);
+            assertNotNull(cachedClass);
+            assertArrayEquals(REWRITTEN_BYTECODE, cachedClass.getBytecode());
+            assertEquals(Set.of("version"), cachedClass.getUsedPropertyNames());
+            assertEquals(Set.of("feature.*"), cachedClass.getUsedPropertyNamePatterns());
+
+            var notUsedPropertyChanged = new CompiledProperties(ImmutableMap.of(
+                "version", "1",
+                "feature.a", "true",
+                "other", "changed"
+            ));
+            assertNotNull(cache.get(classKey, notUsedPropertyChanged), "not used property is changed");
+
+            var usedPropertyChanged = new CompiledProperties(ImmutableMap.of(
+                "version", "2",
+                "feature.a", "true"
+            ));
+            assertNull(cache.get(classKey, usedPropertyChanged), "used property is changed");
+
+            var patternPropertyAdded = new CompiledProperties(ImmutableMap.of(
+                "version", "1",
+                "feature.a", "true",
+                "feature.b", "false"
+            ));
+            assertNull(cache.get(classKey, patternPropertyAdded), "property matching used pattern is added");
+
+            var otherOptionsClassKey = cache.getClassKey(
+                BYTECODE,
+                new ClassFileProcessingOptions(PropertyMapImplementation.COMPACT, PropertyMapStorage.LAZY, true, true)
+            );
+            assertNull(cache.get(otherOptionsClassKey, properties), "options are changed");
+
+            assertEquals(2L, cache.getHitCount());
+            assertEquals(4L, cache.getMissCount());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void leastRecentlyUsedFilesAreEvicted() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var cacheDir = fileSystem.getPath("/cache");
+            var cache = new RewrittenClassesCache(cacheDir, REWRITTEN_BYTECODE.length * 3L);
+            var properties = new CompiledProperties(ImmutableMap.of("version", "1"));
+
+            var oldClassKey = cache.getClassKey("old".getBytes(UTF_8), ClassFileProcessingOptions.DEFAULT);
+            cache.put(oldClassKey, properties, Set.of(), Set.of(), REWRITTEN_BYTECODE);
+            var recentClassKey = cache.getClassKey("recent".getBytes(UTF_8), ClassFileProcessingOptions.DEFAULT);
+            cache.put(recentClassKey, properties, Set.of(), Set.of(), REWRITTEN_BYTECODE);
+
+            var oldTime = FileTime.fromMillis(1_000);
+            setLastModifiedTime(cacheDir.resolve("usages").resolve(oldClassKey), oldTime);
+            try (var paths = newDirectoryStream(cacheDir.resolve("classes"))) {
+                for (var path : paths) {
+                    setLastModifiedTime(path, oldTime);
+                }
+            }
+            assertNotNull(cache.get(recentClassKey, properties), "hit makes the entry recently used");
+
+            cache.evictExceeding();
+
+            assertFalse(exists(cacheDir.resolve("usages").resolve(oldClassKey)));
+            assertTrue(exists(cacheDir.resolve("usages").resolve(recentClassKey)));
+            assertNull(cache.get(oldClassKey, properties));
+            assertNotNull(cache.get(recentClassKey, properties));
+        }
+    }
+
+
+    @Test
+    @SneakyThrows
+    void processedClassIsTakenFromCache() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var cache = new RewrittenClassesCache(fileSystem.getPath("/cache"), Long.MAX_VALUE);
+            var properties = new CompiledProperties(ImmutableMap.of("version", "1.2"));
+            var bytecode = readClassFile(Usage.class);
+
+            var processor = newClassFileProcessor(properties, cache);
+            var rewrittenBytecode = processor.process(bytecode);
+            assertNotNull(rewrittenBytecode);
+            assertEquals(0L, cache.getHitCount());
+
+            var cachedProcessor = newClassFileProcessor(properties, cache);
+            assertArrayEquals(rewrittenBytecode, cachedProcessor.process(bytecode));
+            assertEquals(1L, cache.getHitCount());
+            assertEquals(Set.of("version"), cachedProcessor.getUsedPropertyNames());
+        }
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Usage {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return BuildTimeConstants.getStringProperty("version");
+        }
+    }
+
+    private static ClassFileProcessor newClassFileProcessor(
+        CompiledProperties properties,
+        RewrittenClassesCache cache
+    ) {
+        return new ClassFileProcessor(
+            properties,
+            ClassHierarchyResolver.forClassLoader(RewrittenClassesCacheTest.class.getClassLoader()),
+            new ProcessingMetrics(),
+            ClassFileProcessingOptions.DEFAULT,
+            new PropertyResources(),
+            null,
+            cache
+        );
+    }
+
+    @SneakyThrows
+    private static byte[] readClassFile(Class<?> clazz) {
+        var resourceName = '/' + clazz.getName().replace('.', '/') + ".class";
+        try (var in = requireNonNull(clazz.getResourceAsStream(resourceName))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
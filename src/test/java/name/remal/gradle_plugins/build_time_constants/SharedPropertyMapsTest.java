@@ -0,0 +1,233 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static com.google.common.jimfs.Configuration.unix;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.V1_8;
+import static org.objectweb.asm.Opcodes.V11;
+
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+class SharedPropertyMapsTest {
+
+    private static final String OUTPUT_NAME = "group:root:compileJava";
+
+    private static final String HOLDER_INTERNAL_NAME =
+        new SharedPropertyMaps(OUTPUT_NAME).getHolderInternalName("pkg/Test");
+
+    private static final String MAP_DESCRIPTOR = "Ljava/util/Map;";
+
+    @Test
+    void getHolderInternalName() {
+        var sharedPropertyMaps = new SharedPropertyMaps(OUTPUT_NAME);
+        assertTrue(HOLDER_INTERNAL_NAME.startsWith("pkg/$BuildTimeConstantsPropertyMaps$"), HOLDER_INTERNAL_NAME);
+        assertEquals(
+            HOLDER_INTERNAL_NAME.substring("pkg/".length()),
+            sharedPropertyMaps.getHolderInternalName("Test")
+        );
+        assertNotEquals(
+            HOLDER_INTERNAL_NAME,
+            new SharedPropertyMaps("group:root:compileTestJava").getHolderInternalName("pkg/Test")
+        );
+    }
+
+    @Test
+    void getFieldName() {
+        assertEquals(
+            SharedPropertyMaps.getFieldName("scope", "a.*", Map.of("a.1", "1")),
+            SharedPropertyMaps.getFieldName("scope", "a.*", Map.of("a.1", "1"))
+        );
+        assertNotEquals(
+            SharedPropertyMaps.getFieldName("scope", "a.*", Map.of("a.1", "1")),
+            SharedPropertyMaps.getFieldName("scope", "a.*", Map.of("a.1", "2"))
+        );
+        assertNotEquals(
+            SharedPropertyMaps.getFieldName("scope", "a.*", Map.of("a.1", "1")),
+            SharedPropertyMaps.getFieldName("other", "a.*", Map.of("a.1", "1"))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void existingHolderClassIsRebuiltFromUsedFields() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var outputDirPath = fileSystem.getPath("/output");
+            var holderPath = outputDirPath.resolve(HOLDER_INTERNAL_NAME + ".class");
+            var userBPath = outputDirPath.resolve("pkg/UserB.class");
+            var userCPath = outputDirPath.resolve("pkg/UserC.class");
+            createDirectories(userBPath.getParent());
+            write(userBPath, createUserClass("pkg/UserB", HOLDER_INTERNAL_NAME, "$b"));
+            write(userCPath, createUserClass("pkg/UserC", HOLDER_INTERNAL_NAME, "$c"));
+
+            var sharedPropertyMaps = new SharedPropertyMaps(OUTPUT_NAME);
+            sharedPropertyMaps.add(HOLDER_INTERNAL_NAME, V1_8, "$c", MAP_DESCRIPTOR, () -> createEmptyMapInsns("c"));
+            sharedPropertyMaps.add(HOLDER_INTERNAL_NAME, V1_8, "$b", MAP_DESCRIPTOR, () -> createEmptyMapInsns("b"));
+            sharedPropertyMaps.add(
+                HOLDER_INTERNAL_NAME,
+                V1_8,
+                "$b",
+                MAP_DESCRIPTOR,
+                () -> createEmptyMapInsns("ignored")
+            );
+            sharedPropertyMaps.writeTo(outputDirPath, new ProcessingMetrics());
+            var holder = readClassNode(readAllBytes(holderPath));
+            assertEquals(V1_8, holder.version);
+            assertEquals(List.of("$b", "$c"), getFieldNames(holder));
+            assertEquals(List.of("b", "c"), getLdcValues(holder));
+
+            // UserC is not compiled anymore, UserA is processed
+            delete(userCPath);
+            sharedPropertyMaps = new SharedPropertyMaps(OUTPUT_NAME);
+            sharedPropertyMaps.add(HOLDER_INTERNAL_NAME, V11, "$a", MAP_DESCRIPTOR, () -> createEmptyMapInsns("a"));
+            sharedPropertyMaps.writeTo(outputDirPath, new ProcessingMetrics());
+            holder = readClassNode(readAllBytes(holderPath));
+            assertEquals(V11, holder.version);
+            assertEquals(List.of("$a", "$b"), getFieldNames(holder));
+            assertEquals(List.of("a", "b"), getLdcValues(holder));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void holderClassesOfDifferentOutputsCanBeLoadedTogether() {
+        try (var fileSystem = Jimfs.newFileSystem(unix())) {
+            var mainDirPath = fileSystem.getPath("/main");
+            var testDirPath = fileSystem.getPath("/test");
+
+            var mainMaps = new SharedPropertyMaps("group:root:compileJava");
+            var mainHolderInternalName = mainMaps.getHolderInternalName("pkg/MainUser");
+            mainMaps.add(mainHolderInternalName, V1_8, "$a", MAP_DESCRIPTOR, () -> createEmptyMapInsns("a"));
+            createDirectories(mainDirPath.resolve("pkg"));
+            write(
+                mainDirPath.resolve("pkg/MainUser.class"),
+                createUserClass("pkg/MainUser", mainHolderInternalName, "$a")
+            );
+            mainMaps.writeTo(mainDirPath, new ProcessingMetrics());
+
+            var testMaps = new SharedPropertyMaps("group:root:compileTestJava");
+            var testHolderInternalName = testMaps.getHolderInternalName("pkg/TestUser");
+            testMaps.add(testHolderInternalName, V1_8, "$b", MAP_DESCRIPTOR, () -> createEmptyMapInsns("b"));
+            createDirectories(testDirPath.resolve("pkg"));
+            write(
+                testDirPath.resolve("pkg/TestUser.class"),
+                createUserClass("pkg/TestUser", testHolderInternalName, "$b")
+            );
+            testMaps.writeTo(testDirPath, new ProcessingMetrics());
+
+            var classLoader = new DirectoriesClassLoader(List.of(mainDirPath, testDirPath));
+            assertEquals(emptyMap(), callTestMethod(classLoader.loadClass("pkg.MainUser")));
+            assertEquals(emptyMap(), callTestMethod(classLoader.loadClass("pkg.TestUser")));
+        }
+    }
+
+    /**
+     * Creates a class with {@code test()} method that returns the holder class field.
+     */
+    private static byte[] createUserClass(String internalName, String holderInternalName, String fieldName) {
+        var classWriter = new ClassWriter(COMPUTE_MAXS);
+        classWriter.visit(V1_8, ACC_PUBLIC | ACC_SUPER, internalName, null, "java/lang/Object", null);
+        var method = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "test", "()Ljava/lang/Object;", null, null);
+        method.visitCode();
+        method.visitFieldInsn(GETSTATIC, holderInternalName, fieldName, MAP_DESCRIPTOR);
+        method.visitInsn(ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    @SneakyThrows
+    private static Object callTestMethod(Class<?> clazz) {
+        return clazz.getMethod("test").invoke(null);
+    }
+
+    private static List<AbstractInsnNode> createEmptyMapInsns(String marker) {
+        return List.of(
+            new LdcInsnNode(marker),
+            new InsnNode(POP),
+            new MethodInsnNode(INVOKESTATIC, "java/util/Collections", "emptyMap", "()Ljava/util/Map;")
+        );
+    }
+
+    private static ClassNode readClassNode(byte[] bytecode) {
+        var classNode = new ClassNode();
+        new ClassReader(bytecode).accept(classNode, 0);
+        return classNode;
+    }
+
+    private static List<String> getFieldNames(ClassNode classNode) {
+        return classNode.fields.stream()
+            .map(field -> field.name)
+            .collect(toList());
+    }
+
+    private static List<Object> getLdcValues(ClassNode classNode) {
+        var staticInitMethod = classNode.methods.stream()
+            .filter(method -> method.name.equals("<clinit>"))
+            .findFirst()
+            .orElseThrow();
+        List<Object> result = new ArrayList<>();
+        for (var insn : staticInitMethod.instructions) {
+            if (insn instanceof LdcInsnNode) {
+                result.add(((LdcInsnNode) insn).cst);
+            }
+        }
+        return result;
+    }
+
+
+    private static class DirectoriesClassLoader extends ClassLoader {
+
+        private final List<Path> dirPaths;
+
+        DirectoriesClassLoader(List<Path> dirPaths) {
+            super(DirectoriesClassLoader.class.getClassLoader());
+            this.dirPaths = dirPaths;
+        }
+
+        @Override
+        @SneakyThrows
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var relativePath = name.replace('.', '/') + ".class";
+            for (var dirPath : dirPaths) {
+                var path = dirPath.resolve(relativePath);
+                if (isRegularFile(path)) {
+                    var bytecode = readAllBytes(path);
+                    return defineClass(name, bytecode, 0, bytecode.length);
+                }
+            }
+            throw new ClassNotFoundException(name);
+        }
+
+    }
+
+}
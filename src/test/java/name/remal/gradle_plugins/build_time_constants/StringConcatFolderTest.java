@@ -0,0 +1,101 @@
+package name.remal.gradle_plugins.build_time_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.objectweb.asm.Opcodes.INVOKEDYNAMIC;
+import static org.objectweb.asm.Opcodes.NEW;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import name.remal.gradle_plugins.build_time_constants.api.BuildTimeConstants;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.MethodNode;
+
+class StringConcatFolderTest extends ClassFileProcessorTestUtils {
+
+    private static final Map<String, String> PROPERTIES = ImmutableMap.of(
+        "version", "1.2",
+        "build", "42",
+        "size", "7",
+        "flag", "true"
+    );
+
+    @Test
+    void concatenation() {
+        assertEquals(
+            "v1.2-42/7true",
+            processAndCallTestMethod(Concatenation.class, PROPERTIES)
+        );
+
+        var method = processTestMethod(Concatenation.class, PROPERTIES, ClassFileProcessingOptions.DEFAULT);
+        assertTrue(isConcatenationRemoved(method), "concatenation is folded");
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class Concatenation {
+        @SuppressWarnings("unused")
+        static Object test() {
+            return "v" + BuildTimeConstants.getStringProperty("version")
+                + '-' + BuildTimeConstants.getIntegerProperty("build")
+                + "/" + BuildTimeConstants.getLongProperty("size")
+                + BuildTimeConstants.getBooleanProperty("flag");
+        }
+    }
+
+
+    @Test
+    void stringBuilder() {
+        assertEquals(
+            "v1.2-42",
+            processAndCallTestMethod(StringBuilderChain.class, PROPERTIES)
+        );
+
+        var method = processTestMethod(StringBuilderChain.class, PROPERTIES, ClassFileProcessingOptions.DEFAULT);
+        assertTrue(isConcatenationRemoved(method), "string builder chain is folded");
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class StringBuilderChain {
+        @SuppressWarnings({"unused", "StringBufferReplaceableByString"})
+        static Object test() {
+            return new StringBuilder("v")
+                .append(BuildTimeConstants.getStringProperty("version"))
+                .append('-')
+                .append(BuildTimeConstants.getIntegerProperty("build"))
+                .toString();
+        }
+    }
+
+
+    @Test
+    void notConstantOperand() {
+        assertEquals(
+            "1.2-true",
+            processAndCallTestMethod(NotConstantOperand.class, PROPERTIES)
+        );
+
+        var method = processTestMethod(NotConstantOperand.class, PROPERTIES, ClassFileProcessingOptions.DEFAULT);
+        assertFalse(isConcatenationRemoved(method), "concatenation is kept");
+    }
+
+    @InlineBuildTimeConstantsInTestsOnly
+    private static class NotConstantOperand {
+        @SuppressWarnings("unused")
+        static Object test() {
+            var suffix = String.valueOf(System.nanoTime() != 0);
+            return BuildTimeConstants.getStringProperty("version") + "-" + suffix;
+        }
+    }
+
+
+    private static boolean isConcatenationRemoved(MethodNode method) {
+        for (var insn : method.instructions) {
+            if (insn.getOpcode() == INVOKEDYNAMIC || insn.getOpcode() == NEW) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}